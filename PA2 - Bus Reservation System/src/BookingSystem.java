@@ -1,45 +1,76 @@
-import java.io.RandomAccessFile;
+import java.io.IOException;
 import java.util.Locale;
 
 public class BookingSystem {
+    private static final int SNAPSHOT_INTERVAL = 100000; // The number of voyage changes between journal snapshots
 
     /**
      * The main method that runs the booking system.
-     * It reads commands from the specified file, processes them, and then cleans up the output file.
+     * It reads commands from the specified file, processes them, and writes their output to the output file.
      *
-     * @param args Command line arguments where args[0] is the input file path and args[1] is the output file path.
+     * @param args Command line arguments where args[0] is the input file path and args[1] is the output file path
+     *             and the optional args[2] is the number of output lines between flushes (0 to flush once at the end).
+     *             The optional args[3] is a journal directory, or "-" for none: the voyages kept there are recovered
+     *             before the commands run, and every change made by the commands is recorded there.
+     *             The optional args[4] is the number of threads; with more than one, the commands are replayed in
+     *             shards by voyage ID, which can not be combined with a journal.
+     *             The optional args[5] is "nosync" to only flush journal records instead of forcing every one of them
+     *             to the disk, which is much faster but may lose the last changes if the machine stops.
      */
     public static void main(String[] args) {
         // Set default locale to US for "," to ".".
         Locale.setDefault(Locale.US);
 
-        // Read commands from the input file.
-        String[] commands = FileInput.readFile(args[0], true, true);
-
-        String outputFile = args[1];
-        // outputfile writing process
-        FileOutput.writeToFile(outputFile, "", false, false);
-
-        // Process each command using the VoyageManagementSystem.
-        for (String commandLine : commands) {
-            VoyageManagementSystem.processCommand(commandLine, outputFile);
+        // Lines are buffered and written once; an optional third argument flushes every that many lines.
+        int flushInterval = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+        String journalDirectory = args.length > 3 && !args[3].equals("-") ? args[3] : null;
+        int threadCount = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+        boolean syncJournal = args.length <= 5 || !args[5].equals("nosync");
+        if (threadCount > 1 && journalDirectory != null) {
+            System.err.println("A journal can not be used with more than one thread.");
+            System.exit(1);
         }
 
-        // Check if the last command is not "Z_REPORT" and call generateZReport
-        if (commands.length == 0 || !commands[commands.length - 1].trim().startsWith("Z_REPORT")) {
-            String[] defaultParts = {"Z_REPORT"};
-            VoyageManagementSystem.generateZReport(defaultParts, outputFile);
-        }
+        VoyageManagementSystem system = new VoyageManagementSystem();
+        // Commands are read and processed one line at a time, so the input file is never held in memory.
+        try (CommandReader commands = new CommandReader(args[0]);
+             OutputSink output = new OutputSink(args[1], flushInterval);
+             VoyageJournal journal = journalDirectory != null ? VoyageJournal.open(journalDirectory, SNAPSHOT_INTERVAL, syncJournal, system.voyages) : null) {
+            if (threadCount > 1) {
+                try (ShardedReplay replay = new ShardedReplay(threadCount)) {
+                    replay.replay(commands, output);
+                    if (needsZReport(commands)) {
+                        replay.generateZReport(output);
+                    }
+                }
+                return;
+            }
 
+            system.journal = journal;
+            system.indexRoutes();
 
-        // Remove the last empty line from the output file to clean up after processing.
-        try {
-            RandomAccessFile file = new RandomAccessFile(args[1], "rw");
-            long length = file.length();
-            file.seek(length - 1);
-            file.setLength(length - 1);
-            file.close();
-        } catch (Exception ignored) {
+            // Process each command using the VoyageManagementSystem.
+            String commandLine;
+            while ((commandLine = commands.nextCommand()) != null) {
+                system.processCommand(commandLine, output);
+            }
+
+            if (needsZReport(commands)) {
+                system.generateZReport(output);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
         }
     }
+
+    /**
+     * Checks if the last command is not "Z_REPORT", in which case a Z report is added after the commands.
+     *
+     * @param commands The reader of the commands, after the last command was read.
+     * @return true if a Z report must be added.
+     */
+    private static boolean needsZReport(CommandReader commands) {
+        String lastCommand = commands.getLastCommand();
+        return lastCommand == null || !lastCommand.startsWith("Z_REPORT");
+    }
 }
@@ -45,6 +45,6 @@ public abstract class Bus {
     public double calculateTicketPrice(int seatNumber){
         return ticketPrice;
     }
-    public abstract String getSeatsLayout(boolean[] seatStatus);
+    public abstract String getSeatsLayout(SeatMap seats);
 
 }
@@ -0,0 +1,191 @@
+import java.util.Arrays;
+
+/**
+ * One command line split into its tab separated fields. The fields are kept as index ranges into the line,
+ * so parsing a command copies nothing, and one Command object is reused for every line of the input.
+ * Fields and seat numbers split the same way String.split does: empty fields at the end are dropped.
+ * Numbers are only parsed when they are asked for, so a field that is not a number fails at the same point
+ * as it would with Integer.parseInt.
+ */
+public class Command {
+    private String line;
+    private CommandType type;
+    private int fieldCount;
+    private int[] fieldStart = new int[16];
+    private int[] fieldEnd = new int[16];
+    private int seatCount;
+    private int[] seatStart = new int[16];
+    private int[] seatEnd = new int[16];
+    private int[] seats = new int[16];
+
+    /**
+     * Splits a line into its fields and finds its command type. The seat numbers are not split until splitSeats is called.
+     *
+     * @param line The command line.
+     */
+    public void parse(String line) {
+        this.line = line;
+        fieldCount = 0;
+        seatCount = 0;
+        int start = 0;
+        int tab;
+        while ((tab = line.indexOf('\t', start)) >= 0) {
+            addField(start, tab);
+            start = tab + 1;
+        }
+        addField(start, line.length());
+        if (fieldCount > 1) {
+            while (fieldCount > 0 && fieldStart[fieldCount - 1] == fieldEnd[fieldCount - 1]) {
+                fieldCount--;
+            }
+        }
+        type = fieldCount > 0 ? CommandType.of(line, fieldStart[0], fieldEnd[0]) : CommandType.UNKNOWN;
+    }
+
+    private void addField(int start, int end) {
+        if (fieldCount == fieldStart.length) {
+            fieldStart = Arrays.copyOf(fieldStart, 2 * fieldCount);
+            fieldEnd = Arrays.copyOf(fieldEnd, 2 * fieldCount);
+        }
+        fieldStart[fieldCount] = start;
+        fieldEnd[fieldCount] = end;
+        fieldCount++;
+    }
+
+    public CommandType getType() {
+        return type;
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Returns the text of the command, which is the line without the empty fields at its end.
+     *
+     * @return The fields of the command joined with tabs.
+     */
+    public String getText() {
+        int end = fieldCount == 0 ? 0 : fieldEnd[fieldCount - 1];
+        return end == line.length() ? line : line.substring(0, end);
+    }
+
+    /**
+     * Returns a field as a new string. Meant for fields that are printed, numbers are read with getIntField.
+     *
+     * @param index The index of the field, 0 is the command name.
+     * @return The text of the field.
+     */
+    public String getField(int index) {
+        checkField(index);
+        return line.substring(fieldStart[index], fieldEnd[index]);
+    }
+
+    /**
+     * Checks whether a field is equal to a text without copying the field.
+     *
+     * @param index The index of the field.
+     * @param text  The text to compare with.
+     * @return true if the field is the same as the text.
+     */
+    public boolean fieldEquals(int index, String text) {
+        checkField(index);
+        return fieldEnd[index] - fieldStart[index] == text.length() && line.regionMatches(fieldStart[index], text, 0, text.length());
+    }
+
+    /**
+     * Parses a field as an integer.
+     *
+     * @param index The index of the field.
+     * @return The value of the field.
+     * @throws NumberFormatException if the field is not an integer.
+     */
+    public int getIntField(int index) {
+        checkField(index);
+        return Integer.parseInt(line, fieldStart[index], fieldEnd[index], 10);
+    }
+
+    private void checkField(int index) {
+        if (index >= fieldCount) {
+            throw new ArrayIndexOutOfBoundsException("Index " + index + " out of bounds for length " + fieldCount);
+        }
+    }
+
+    /**
+     * Splits a field of seat numbers separated by "_". Empty seat numbers at the end are dropped.
+     *
+     * @param index The index of the field.
+     * @return The number of seat numbers.
+     */
+    public int splitSeats(int index) {
+        checkField(index);
+        seatCount = 0;
+        int start = fieldStart[index];
+        int end = fieldEnd[index];
+        int separator;
+        while ((separator = line.indexOf('_', start)) >= 0 && separator < end) {
+            addSeat(start, separator);
+            start = separator + 1;
+        }
+        addSeat(start, end);
+        if (seatCount > 1) {
+            while (seatCount > 0 && seatStart[seatCount - 1] == seatEnd[seatCount - 1]) {
+                seatCount--;
+            }
+        }
+        return seatCount;
+    }
+
+    private void addSeat(int start, int end) {
+        if (seatCount == seatStart.length) {
+            seatStart = Arrays.copyOf(seatStart, 2 * seatCount);
+            seatEnd = Arrays.copyOf(seatEnd, 2 * seatCount);
+            seats = Arrays.copyOf(seats, 2 * seatCount);
+        }
+        seatStart[seatCount] = start;
+        seatEnd[seatCount] = end;
+        seatCount++;
+    }
+
+    public int getSeatCount() {
+        return seatCount;
+    }
+
+    /**
+     * Parses a seat number and keeps it in the array returned by getSeats.
+     *
+     * @param index The index of the seat number.
+     * @return The seat number.
+     * @throws NumberFormatException if the seat number is not an integer.
+     */
+    public int getSeat(int index) {
+        seats[index] = Integer.parseInt(line, seatStart[index], seatEnd[index], 10);
+        return seats[index];
+    }
+
+    /**
+     * Returns the seat numbers parsed by getSeat. The array is reused by the next command and may be longer
+     * than the number of seats.
+     *
+     * @return The parsed seat numbers.
+     */
+    public int[] getSeats() {
+        return seats;
+    }
+
+    public String getSeatText(int index) {
+        return line.substring(seatStart[index], seatEnd[index]);
+    }
+
+    /**
+     * Returns the seat numbers as they are written in the command, joined with "-".
+     *
+     * @return The joined seat numbers.
+     */
+    public String getSeatsText() {
+        if (seatCount == 0) {
+            return "";
+        }
+        return line.substring(seatStart[0], seatEnd[seatCount - 1]).replace('_', '-');
+    }
+}
@@ -0,0 +1,57 @@
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Reads the commands of an input file one line at a time, so only the current line is kept in memory however
+ * long the file is. Lines are trimmed and empty lines are skipped, the same as FileInput.readFile(path, true, true).
+ * The reader remembers the last command it returned, so the caller can still check it after the end of the file.
+ */
+public class CommandReader implements Closeable {
+    private final BufferedReader reader;
+    private String lastCommand;
+
+    /**
+     * Opens an input file.
+     *
+     * @param path Path to the file that is going to be read.
+     * @throws IOException if there is no such a file or this program does not have sufficient permissions to read it.
+     */
+    public CommandReader(String path) throws IOException {
+        this.reader = Files.newBufferedReader(Paths.get(path));
+    }
+
+    /**
+     * Reads the next command.
+     *
+     * @return The next non-empty line, trimmed, or null at the end of the file.
+     * @throws IOException if the file cannot be read.
+     */
+    public String nextCommand() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (!line.isEmpty()) {
+                lastCommand = line;
+                return line;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the last command that was read.
+     *
+     * @return The last command, or null if no command was read yet.
+     */
+    public String getLastCommand() {
+        return lastCommand;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
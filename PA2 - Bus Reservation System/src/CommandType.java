@@ -0,0 +1,35 @@
+/**
+ * The commands of the booking system. The name of every command type except UNKNOWN is the name of the command
+ * as it is written in the input file.
+ */
+public enum CommandType {
+    INIT_VOYAGE,
+    SELL_TICKET,
+    REFUND_TICKET,
+    PRINT_VOYAGE,
+    Z_REPORT,
+    CANCEL_VOYAGE,
+    FIND_SEATS,
+    SEARCH_VOYAGES,
+    UNKNOWN;
+
+    private static final CommandType[] COMMANDS = values();
+
+    /**
+     * Finds the command type of a command name without copying the name out of its line.
+     *
+     * @param line  The line that holds the name.
+     * @param start The index of the first character of the name.
+     * @param end   The index after the last character of the name.
+     * @return The command type, or UNKNOWN if there is no command with that name.
+     */
+    public static CommandType of(String line, int start, int end) {
+        for (CommandType type : COMMANDS) {
+            String name = type.name();
+            if (type != UNKNOWN && name.length() == end - start && line.regionMatches(start, name, 0, name.length())) {
+                return type;
+            }
+        }
+        return UNKNOWN;
+    }
+}
@@ -6,14 +6,14 @@ public class Minibus extends Bus {
     /**
      * Generates the seating layout for the minibus, showing occupied and unoccupied seats.
      *
-     * @param seatStatus An array of boolean values representing the occupancy status of each seat (true if available).
+     * @param seats The seat map of the voyage, showing which seats are sold.
      * @return A string representation of the seating layout.
      */
     @Override
-    public String getSeatsLayout(boolean[] seatStatus) {
+    public String getSeatsLayout(SeatMap seats) {
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < getCapacity(); i++) {
-            sb.append(seatStatus[i] ? "*" : "X");
+            sb.append(!seats.isSold(i) ? "*" : "X");
             if ((i + 1) < getCapacity() && (i + 1) % 2 != 0) {
                 sb.append(" ");
             }
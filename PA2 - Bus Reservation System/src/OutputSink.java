@@ -0,0 +1,143 @@
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Writes the output lines of the booking system through one buffered writer instead of opening the output file
+ * for every line. The buffer is written out whenever it fills, so the memory used stays the same however long the run is,
+ * and the output is not all-or-nothing: after a failure the file holds the lines written so far.
+ * The output must not end with a new line, so the new line after a line is held back until the next line is written
+ * and dropped at the end. For long runs the sink can also flush every given number of lines, so the output grows
+ * in whole lines while the commands run.
+ */
+public class OutputSink implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Writer writer;
+    private final int flushInterval;
+    private int linesSinceFlush;
+    private boolean newLinePending;
+
+    /**
+     * Constructs a sink that writes to a file, replacing its content.
+     *
+     * @param path          Path of the output file.
+     * @param flushInterval The number of lines between flushes, or 0 to flush only when the buffer fills or the sink is closed.
+     * @throws IOException if the file cannot be opened.
+     */
+    public OutputSink(String path, int flushInterval) throws IOException {
+        this(new OutputStreamWriter(new FileOutputStream(path, false)), flushInterval);
+    }
+
+    /**
+     * Constructs a sink that writes to any writer, for example a StringWriter to keep the output in memory.
+     *
+     * @param writer        The writer the lines are written to.
+     * @param flushInterval The number of lines between flushes, or 0 to flush only when the buffer fills or the sink is closed.
+     */
+    public OutputSink(Writer writer, int flushInterval) {
+        this(writer, flushInterval, BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs a sink that writes to any writer with a buffer of a given size, for example a small one
+     * for a sink that only collects the output of one command.
+     *
+     * @param writer        The writer the lines are written to.
+     * @param flushInterval The number of lines between flushes, or 0 to flush only when the buffer fills or the sink is closed.
+     * @param bufferSize    The number of characters buffered before they are written to the writer.
+     */
+    public OutputSink(Writer writer, int flushInterval, int bufferSize) {
+        this.writer = new BufferedWriter(writer, bufferSize);
+        this.flushInterval = flushInterval;
+    }
+
+    /**
+     * Writes a line. The new line after it is only written if another line follows.
+     *
+     * @param content Content of the line.
+     */
+    public void writeLine(String content) {
+        writeLine("", content);
+    }
+
+    /**
+     * Writes a line made of two parts without joining them into a new string first.
+     *
+     * @param prefix  The start of the line.
+     * @param content The rest of the line.
+     */
+    public void writeLine(String prefix, String content) {
+        try {
+            if (newLinePending) {
+                writer.write('\n');
+            }
+            writer.write(prefix);
+            writer.write(content);
+            newLinePending = true;
+            if (flushInterval > 0 && ++linesSinceFlush >= flushInterval) {
+                writer.flush();
+                linesSinceFlush = 0;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes a part of a text as a line, for example the lines of one command taken from the text collected
+     * by another sink, without copying that part into a new string first.
+     *
+     * @param text  The text the line is taken from.
+     * @param start The index of the first character of the line.
+     * @param end   The index after the last character of the line.
+     */
+    public void writeLine(String text, int start, int end) {
+        try {
+            if (newLinePending) {
+                writer.write('\n');
+            }
+            writer.write(text, start, end - start);
+            newLinePending = true;
+            if (flushInterval > 0 && ++linesSinceFlush >= flushInterval) {
+                writer.flush();
+                linesSinceFlush = 0;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Ends a block of lines: the lines are flushed and the new line after the last one is dropped, so the next line
+     * starts a new block. A sink that collects the output of several commands one after another uses it to find
+     * where the output of each command ends.
+     */
+    void endBlock() {
+        flush();
+        newLinePending = false;
+    }
+
+    public void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Flushes the buffered lines without the last new line and closes the output.
+     */
+    @Override
+    public void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
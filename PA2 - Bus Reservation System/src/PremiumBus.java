@@ -28,14 +28,14 @@ public class PremiumBus extends Bus {
     /**
      * Calculates the ticket price for a given seat, considering if it's a premium seat.
      *
-     * @param seatStatus The seat number for which the ticket price is calculated.
+     * @param seats The seat number for which the ticket price is calculated.
      * @return The ticket price, possibly increased by the premium fee for premium seats.
      */
     @Override
-    public String getSeatsLayout(boolean[] seatStatus) {
+    public String getSeatsLayout(SeatMap seats) {
         StringBuilder layout = new StringBuilder();
         for (int i = 0; i < capacity; i++) {
-            layout.append(seatStatus[i] ? "*" : "X");
+            layout.append(!seats.isSold(i) ? "*" : "X");
             if ((i + 1) % 3 == 1) {
                 layout.append(" |");
             }
@@ -0,0 +1,70 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A thread-safe store of voyages for selling and refunding tickets from many sales channels at once.
+ * Voyages are kept in a concurrent map, and every sale or refund locks only its own voyage, so channels selling
+ * different voyages never wait for each other. A sale of several seats is all or nothing: if any seat is already sold,
+ * no seat is sold, however the sales of other channels are interleaved with it.
+ */
+public class SalesEngine {
+    private final ConcurrentMap<Integer, Voyage> voyages = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a voyage unless there is already a voyage with the same ID.
+     *
+     * @param voyageId The ID of the voyage.
+     * @param voyage   The voyage.
+     * @return true if the voyage was added, false if the ID is already used.
+     */
+    public boolean addVoyage(int voyageId, Voyage voyage) {
+        return voyages.putIfAbsent(voyageId, voyage) == null;
+    }
+
+    public Voyage getVoyage(int voyageId) {
+        return voyages.get(voyageId);
+    }
+
+    public int getVoyageCount() {
+        return voyages.size();
+    }
+
+    /**
+     * Sells seats of a voyage. Either every seat is sold or none is.
+     *
+     * @param voyageId    The ID of the voyage.
+     * @param seatNumbers The seat numbers (1-based index) to sell.
+     * @return true if the seats were sold, false if there is no such voyage or any seat is invalid or already sold.
+     */
+    public boolean sellTickets(int voyageId, int... seatNumbers) {
+        Voyage voyage = voyages.get(voyageId);
+        return voyage != null && voyage.sellSeats(seatNumbers);
+    }
+
+    /**
+     * Refunds seats of a voyage. Either every seat is refunded or none is. Minibus tickets are not refundable.
+     *
+     * @param voyageId    The ID of the voyage.
+     * @param seatNumbers The seat numbers (1-based index) to refund.
+     * @return true if the seats were refunded, false if there is no such voyage, the voyage is a minibus voyage
+     * or any seat is invalid or already empty.
+     */
+    public boolean refundTickets(int voyageId, int... seatNumbers) {
+        Voyage voyage = voyages.get(voyageId);
+        return voyage != null && !(voyage.getBus() instanceof Minibus) && voyage.refundSeats(seatNumbers);
+    }
+
+    /**
+     * Cancels a voyage and removes it. Sales and refunds that already found the voyage fail once it is cancelled.
+     *
+     * @param voyageId The ID of the voyage.
+     * @return The cancelled voyage, or null if there is no such voyage.
+     */
+    public Voyage cancelVoyage(int voyageId) {
+        Voyage voyage = voyages.remove(voyageId);
+        if (voyage != null) {
+            voyage.resetRevenue();
+        }
+        return voyage;
+    }
+}
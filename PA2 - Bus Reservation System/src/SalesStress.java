@@ -0,0 +1,105 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Checks that SalesEngine never sells a seat twice. Several threads buy random groups of seats of the same few
+ * voyages and refund some of what they bought. Every thread marks the seats it bought as held, and a seat that is
+ * already held when a sale of it succeeds means it was sold twice. At the end the held seats must match the sold seats
+ * of every voyage. Prints OK, or FAILED with the reason and exits with status 1.
+ *
+ * Usage: java SalesStress [threads 8] [operations per thread 200000] [seed 42]
+ */
+public class SalesStress {
+    private static final int VOYAGES = 4;
+    private static final int ROWS = 30;
+
+    public static void main(String[] args) throws InterruptedException {
+        Locale.setDefault(Locale.US);
+        int threadCount = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+
+        SalesEngine engine = new SalesEngine();
+        AtomicIntegerArray[] held = new AtomicIntegerArray[VOYAGES];
+        for (int id = 1; id <= VOYAGES; id++) {
+            Bus bus = id % 2 == 0 ? new PremiumBus(3 * ROWS, 100, 25, 10) : new StandardBus(4 * ROWS, 80, 20);
+            engine.addVoyage(id, new Voyage(String.valueOf(id), "Ankara", "Istanbul", bus));
+            held[id - 1] = new AtomicIntegerArray(bus.getCapacity());
+        }
+
+        AtomicBoolean failed = new AtomicBoolean();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            Random random = new Random(seed + t);
+            threads.add(new Thread(() -> {
+                List<int[]> bought = new ArrayList<>();
+                List<Integer> boughtVoyages = new ArrayList<>();
+                for (int i = 0; i < operations && !failed.get(); i++) {
+                    if (!bought.isEmpty() && random.nextInt(3) == 0) {
+                        int index = random.nextInt(bought.size());
+                        int[] seats = bought.remove(index);
+                        int voyageId = boughtVoyages.remove(index);
+                        // Let go of the seats first, another thread may buy them as soon as they are refunded.
+                        for (int seat : seats) {
+                            held[voyageId - 1].set(seat - 1, 0);
+                        }
+                        if (!engine.refundTickets(voyageId, seats)) {
+                            fail(failed, "refund of owned seats of voyage " + voyageId + " failed");
+                        }
+                        continue;
+                    }
+                    int voyageId = 1 + random.nextInt(VOYAGES);
+                    int capacity = engine.getVoyage(voyageId).getBus().getCapacity();
+                    int[] seats = random.ints(1, capacity + 1).distinct().limit(1 + random.nextInt(4)).toArray();
+                    if (engine.sellTickets(voyageId, seats)) {
+                        for (int seat : seats) {
+                            if (!held[voyageId - 1].compareAndSet(seat - 1, 0, 1)) {
+                                fail(failed, "seat " + seat + " of voyage " + voyageId + " was sold twice");
+                            }
+                        }
+                        bought.add(seats);
+                        boughtVoyages.add(voyageId);
+                    }
+                }
+            }));
+        }
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long time = System.nanoTime() - start;
+
+        for (int id = 1; id <= VOYAGES && !failed.get(); id++) {
+            Voyage voyage = engine.getVoyage(id);
+            int heldCount = 0;
+            for (int seat = 1; seat <= voyage.getBus().getCapacity(); seat++) {
+                boolean isHeld = held[id - 1].get(seat - 1) == 1;
+                if (isHeld == voyage.isSeatEmpty(seat)) {
+                    fail(failed, "seat " + seat + " of voyage " + id + " is " + (isHeld ? "held but empty" : "sold but not held"));
+                }
+                heldCount += isHeld ? 1 : 0;
+            }
+            if (heldCount != voyage.getSoldSeatCount()) {
+                fail(failed, "voyage " + id + " counts " + voyage.getSoldSeatCount() + " sold seats, " + heldCount + " are held");
+            }
+        }
+        System.out.println(String.format("%d threads, %d operations each, %.1f ms", threadCount, operations, time / 1e6));
+        if (failed.get()) {
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    private static void fail(AtomicBoolean failed, String reason) {
+        if (!failed.getAndSet(true)) {
+            System.out.println("FAILED: " + reason);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/**
+ * Keeps the sold seats of a voyage as a bitset, one bit per seat in an array of long words.
+ * Selling or refunding a seat flips one bit, the number of sold seats is kept up to date on every change,
+ * and sold seats can be walked a word at a time without looking at the empty ones.
+ */
+public class SeatMap {
+    private final long[] words;
+    private final int capacity;
+    private int soldCount;
+
+    /**
+     * Constructs a seat map with every seat empty.
+     *
+     * @param capacity The number of seats.
+     */
+    public SeatMap(int capacity) {
+        this.capacity = capacity;
+        this.words = new long[(capacity + 63) >>> 6];
+    }
+
+    /**
+     * Constructs a seat map from the words of another seat map, for example one read from a snapshot.
+     *
+     * @param capacity The number of seats.
+     * @param words    The words of the seat map, as returned by getWords.
+     */
+    public SeatMap(int capacity, long[] words) {
+        this(capacity);
+        System.arraycopy(words, 0, this.words, 0, this.words.length);
+        for (long word : this.words) {
+            soldCount += Long.bitCount(word);
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getSoldCount() {
+        return soldCount;
+    }
+
+    /**
+     * Returns a copy of the words of the seat map, where bit i of word i / 64 is set if seat i is sold.
+     *
+     * @return The words of the seat map.
+     */
+    public long[] getWords() {
+        return words.clone();
+    }
+
+    /**
+     * Checks whether a seat is sold.
+     *
+     * @param index The 0-based index of the seat.
+     * @return true if the seat is sold, false if it is empty.
+     */
+    public boolean isSold(int index) {
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Marks a seat as sold.
+     *
+     * @param index The 0-based index of the seat.
+     * @return true if the seat was empty before, false if it was already sold.
+     */
+    public boolean sell(int index) {
+        long bit = 1L << index;
+        long word = words[index >>> 6];
+        if ((word & bit) != 0) {
+            return false;
+        }
+        words[index >>> 6] = word | bit;
+        soldCount++;
+        return true;
+    }
+
+    /**
+     * Marks a seat as empty.
+     *
+     * @param index The 0-based index of the seat.
+     * @return true if the seat was sold before, false if it was already empty.
+     */
+    public boolean free(int index) {
+        long bit = 1L << index;
+        long word = words[index >>> 6];
+        if ((word & bit) == 0) {
+            return false;
+        }
+        words[index >>> 6] = word & ~bit;
+        soldCount--;
+        return true;
+    }
+
+    /**
+     * Finds the first sold seat at or after an index.
+     *
+     * @param fromIndex The 0-based index to start from.
+     * @return The index of the sold seat, or -1 if there is none.
+     */
+    public int nextSold(int fromIndex) {
+        if (fromIndex >= capacity) {
+            return -1;
+        }
+        int wordIndex = fromIndex >>> 6;
+        long word = words[wordIndex] & (-1L << fromIndex);
+        while (true) {
+            if (word != 0) {
+                return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++wordIndex == words.length) {
+                return -1;
+            }
+            word = words[wordIndex];
+        }
+    }
+
+    /**
+     * Finds the first empty seat at or after an index.
+     *
+     * @param fromIndex The 0-based index to start from.
+     * @return The index of the empty seat, or -1 if there is none.
+     */
+    public int nextFree(int fromIndex) {
+        if (fromIndex >= capacity) {
+            return -1;
+        }
+        int wordIndex = fromIndex >>> 6;
+        long word = ~words[wordIndex] & (-1L << fromIndex);
+        while (true) {
+            if (word != 0) {
+                int index = (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+                return index < capacity ? index : -1;
+            }
+            if (++wordIndex == words.length) {
+                return -1;
+            }
+            word = ~words[wordIndex];
+        }
+    }
+
+    /**
+     * Finds the first empty seat at or after an index whose index is phase more than a multiple of period,
+     * for example every third seat starting with the first one for period 3 and phase 0.
+     * The empty seats of a word are masked with the seats of the period, so a whole word is checked at once.
+     *
+     * @param fromIndex The 0-based index to start from.
+     * @param period    The distance between two seats of the kind that is searched.
+     * @param phase     The index of the first seat of that kind, less than period.
+     * @return The index of the empty seat, or -1 if there is none.
+     */
+    public int nextFree(int fromIndex, int period, int phase) {
+        if (fromIndex >= capacity) {
+            return -1;
+        }
+        int wordIndex = fromIndex >>> 6;
+        long word = ~words[wordIndex] & (-1L << fromIndex) & periodMask(wordIndex, period, phase);
+        while (true) {
+            if (word != 0) {
+                int index = (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+                return index < capacity ? index : -1;
+            }
+            if (++wordIndex == words.length) {
+                return -1;
+            }
+            word = ~words[wordIndex] & periodMask(wordIndex, period, phase);
+        }
+    }
+
+    /**
+     * Counts the empty seats whose index is phase more than a multiple of period, a word at a time.
+     *
+     * @param period The distance between two seats of the kind that is counted.
+     * @param phase  The index of the first seat of that kind, less than period.
+     * @return The number of empty seats of that kind.
+     */
+    public int countFree(int period, int phase) {
+        int count = 0;
+        for (int wordIndex = 0; wordIndex < words.length; wordIndex++) {
+            long word = ~words[wordIndex] & periodMask(wordIndex, period, phase);
+            if (wordIndex == words.length - 1 && (capacity & 63) != 0) {
+                word &= (1L << capacity) - 1; // Seats after the last one are not empty seats.
+            }
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the bits of a word whose seat index is phase more than a multiple of period.
+     */
+    private static long periodMask(int wordIndex, int period, int phase) {
+        int first = Math.floorMod(phase - (wordIndex << 6), period);
+        long mask = 0;
+        for (int bit = first; bit < 64; bit += period) {
+            mask |= 1L << bit;
+        }
+        return mask;
+    }
+
+    /**
+     * Finds the first run of empty seats with consecutive indexes at or after an index. Runs are skipped a whole run
+     * at a time by jumping between the next empty and the next sold seat.
+     *
+     * @param count     The number of empty seats in a row that is needed.
+     * @param fromIndex The 0-based index to start from.
+     * @return The index of the first seat of the run, or -1 if there is no such run.
+     */
+    public int findFreeRun(int count, int fromIndex) {
+        int start = nextFree(fromIndex);
+        while (start >= 0) {
+            int end = nextSold(start);
+            if (end < 0) {
+                end = capacity;
+            }
+            if (end - start >= count) {
+                return start;
+            }
+            start = nextFree(end);
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,408 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Replays a command file on several threads. Every command except Z_REPORT and SEARCH_VOYAGES touches one voyage,
+ * so the voyages are split into shards by ID, each shard with its own VoyageManagementSystem, and the commands of
+ * different shards run in parallel while the commands of one shard still run in file order.
+ *
+ * Commands are read in batches, and every line is parsed once by the reading thread to find its shard. The commands
+ * of a batch are handed to their shards, and every shard writes the output of its commands into one buffer, noting
+ * where the output of each command ends. Once every shard is done the outputs are written in the order of the file.
+ *
+ * A SEARCH_VOYAGES command needs the free seats of the voyages of its route in every shard, as they are at its place
+ * in the file. So every shard records them for its own voyages when it gets there and goes on, and the last shard
+ * to get there answers the search from the recorded parts, so no shard waits for another. A Z_REPORT command needs
+ * every voyage, so it still ends its batch and runs after every command before it, on a view that sees the voyages
+ * of all shards. So the output is the same as the output of the serial replay.
+ */
+public class ShardedReplay implements Closeable {
+    private static final int BATCH_SIZE = 4096;
+    private static final int SEARCH = -1; // The shard of a SEARCH_VOYAGES command, which every shard takes part in
+    private static final int REPORT = -2; // The shard of a Z_REPORT command, which ends the batch
+
+    private final VoyageManagementSystem[] shards;
+    private final MergedView view = new MergedView();
+    private final ExecutorService workers;
+    private final Command router = new Command();
+
+    // The output buffers of the shards, reused for every batch
+    private final StringWriter[] texts;
+    private final OutputSink[] sinks;
+
+    // The current batch: every command with its shard, the buffer of its output and where its output ends
+    private final String[] batch = new String[BATCH_SIZE];
+    private final int[] shardOfCommand = new int[BATCH_SIZE];
+    private final int[] bufferOfCommand = new int[BATCH_SIZE];
+    private final int[] outputEnds = new int[BATCH_SIZE];
+    private final RuntimeException[] failures = new RuntimeException[BATCH_SIZE];
+    private final int[][] commandsOfShards;
+    private final int[] commandCounts;
+
+    // The searches of the current batch, with the parts of their routes the shards recorded
+    private final int[] searches = new int[BATCH_SIZE];
+    private int searchCount;
+    private final String[] searchFrom = new String[BATCH_SIZE];
+    private final String[] searchTo = new String[BATCH_SIZE];
+    private final RoutePart[][] routeParts = new RoutePart[BATCH_SIZE][];
+    private final AtomicIntegerArray missingParts = new AtomicIntegerArray(BATCH_SIZE);
+
+    /**
+     * Constructs a replay with empty shards.
+     *
+     * @param shardCount The number of shards, which is also the number of worker threads.
+     */
+    public ShardedReplay(int shardCount) {
+        shards = new VoyageManagementSystem[shardCount];
+        texts = new StringWriter[shardCount];
+        sinks = new OutputSink[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new VoyageManagementSystem();
+            texts[i] = new StringWriter();
+            sinks[i] = new OutputSink(texts[i], 0);
+        }
+        commandsOfShards = new int[shardCount][BATCH_SIZE];
+        commandCounts = new int[shardCount];
+        workers = Executors.newFixedThreadPool(shardCount);
+    }
+
+    /**
+     * Processes every command of a reader and writes their output in the order of the commands.
+     * If a command throws an exception, the output up to that command is written and the exception is thrown,
+     * as it would be by the serial replay.
+     *
+     * @param commands The reader of the commands.
+     * @param output   The sink where the output of the commands will be written.
+     * @throws IOException if the commands cannot be read.
+     */
+    public void replay(CommandReader commands, OutputSink output) throws IOException {
+        String commandLine = commands.nextCommand();
+        while (commandLine != null) {
+            int size = 0;
+            int shard = 0;
+            searchCount = 0;
+            Arrays.fill(commandCounts, 0);
+            while (commandLine != null && size < BATCH_SIZE) {
+                shard = shardOf(commandLine);
+                if (shard == REPORT) {
+                    break;
+                }
+                batch[size] = commandLine;
+                shardOfCommand[size] = shard;
+                if (shard == SEARCH) {
+                    addSearch(size);
+                } else {
+                    bufferOfCommand[size] = shard;
+                    commandsOfShards[shard][commandCounts[shard]++] = size;
+                }
+                size++;
+                commandLine = commands.nextCommand();
+            }
+            runBatch(size, output);
+            if (shard == REPORT) {
+                view.processCommand(commandLine, output);
+                commandLine = commands.nextCommand();
+            }
+        }
+    }
+
+    /**
+     * Writes the Z report of the voyages of all shards.
+     *
+     * @param output The sink where the report will be written.
+     */
+    public void generateZReport(OutputSink output) {
+        view.generateZReport(output);
+    }
+
+    /**
+     * Finds the shard of a command from the ID of its voyage, or SEARCH or REPORT for the commands of every shard.
+     * A command whose ID can not be read goes to the first shard, where it fails the same way as in the serial replay.
+     */
+    private int shardOf(String commandLine) {
+        router.parse(commandLine);
+        CommandType type = router.getType();
+        if (type == CommandType.SEARCH_VOYAGES) {
+            return SEARCH;
+        }
+        if (type == CommandType.Z_REPORT) {
+            return REPORT;
+        }
+        try {
+            return shardOfId(router.getIntField(type == CommandType.INIT_VOYAGE ? 2 : 1));
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    private int shardOfId(int id) {
+        return Math.floorMod(id, shards.length);
+    }
+
+    /**
+     * Adds the search that was just parsed to the batch. A search with the wrong number of fields is only an error
+     * message, so no shard records a part of a route for it.
+     */
+    private void addSearch(int index) {
+        searches[searchCount++] = index;
+        boolean valid = router.getFieldCount() == 3;
+        searchFrom[index] = valid ? router.getField(1) : null;
+        searchTo[index] = valid ? router.getField(2) : null;
+        routeParts[index] = new RoutePart[shards.length];
+        missingParts.set(index, shards.length);
+    }
+
+    /**
+     * Runs a batch of commands on their shards and writes their output in order.
+     */
+    private void runBatch(int size, OutputSink output) {
+        if (size == 0) {
+            return;
+        }
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < shards.length; i++) {
+            int shard = i;
+            if (commandCounts[shard] > 0 || searchCount > 0) {
+                tasks.add(() -> {
+                    runShard(shard);
+                    return null;
+                });
+            }
+        }
+        try {
+            for (Future<Void> future : workers.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+
+        String[] outputs = new String[texts.length];
+        int[] starts = new int[texts.length];
+        for (int i = 0; i < texts.length; i++) {
+            outputs[i] = texts[i].toString();
+            texts[i].getBuffer().setLength(0);
+        }
+        for (int i = 0; i < size; i++) {
+            if (shardOfCommand[i] == SEARCH) {
+                routeParts[i] = null;
+            }
+            int buffer = bufferOfCommand[i];
+            int start = starts[buffer];
+            int end = outputEnds[i];
+            if (end > start) {
+                output.writeLine(outputs[buffer], start, end);
+            }
+            starts[buffer] = end;
+            if (failures[i] != null) {
+                RuntimeException failure = failures[i];
+                Arrays.fill(failures, 0, size, null);
+                Arrays.fill(routeParts, 0, size, null);
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Runs the commands of one shard in file order and records its part of every search on the way. Once a command
+     * of the shard throws an exception the rest of the shard is not run, since the serial replay stops there; the
+     * searches after it are not answered, but their output would not be written anyway.
+     */
+    private void runShard(int shard) {
+        int[] commands = commandsOfShards[shard];
+        int count = commandCounts[shard];
+        int next = 0;
+        for (int s = 0; s <= searchCount; s++) {
+            int stop = s < searchCount ? searches[s] : Integer.MAX_VALUE;
+            for (; next < count && commands[next] < stop; next++) {
+                if (!runCommand(commands[next], shard)) {
+                    return;
+                }
+            }
+            if (s < searchCount && !addRoutePart(searches[s], shard)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Records the part of the route of a search in a shard. The shard that records the last part answers the search
+     * and writes its output into its own buffer, after the commands of the shard before the search.
+     *
+     * @return false if the search threw an exception.
+     */
+    private boolean addRoutePart(int index, int shard) {
+        if (searchFrom[index] != null) {
+            routeParts[index][shard] = RoutePart.of(shards[shard], searchFrom[index], searchTo[index]);
+        }
+        if (missingParts.decrementAndGet(index) > 0) {
+            return true;
+        }
+        bufferOfCommand[index] = shard;
+        return runCommand(index, shard);
+    }
+
+    /**
+     * Runs one command and notes where its output ends in the buffer.
+     *
+     * @return false if the command threw an exception.
+     */
+    private boolean runCommand(int index, int buffer) {
+        OutputSink sink = sinks[buffer];
+        try {
+            if (shardOfCommand[index] == SEARCH) {
+                view.processSearch(index, sink);
+            } else {
+                shards[buffer].processCommand(batch[index], sink);
+            }
+            return true;
+        } catch (RuntimeException e) {
+            failures[index] = e;
+            return false;
+        } finally {
+            sink.endBlock();
+            outputEnds[index] = texts[buffer].getBuffer().length();
+        }
+    }
+
+    @Override
+    public void close() {
+        workers.shutdown();
+    }
+
+    /**
+     * The free seats of the voyages of one route in one shard, as they were when the shard reached a search.
+     */
+    private static class RoutePart {
+        private final int[] ids;
+        private final int[] freeSeatCounts;
+        private final double[] cheapestPrices;
+
+        private RoutePart(int count) {
+            ids = new int[count];
+            freeSeatCounts = new int[count];
+            cheapestPrices = new double[count];
+        }
+
+        /**
+         * Records the voyages of a route in a shard.
+         *
+         * @return The part, or null if the shard has no voyage from the departure to the arrival.
+         */
+        static RoutePart of(VoyageManagementSystem shard, String from, String to) {
+            Collection<Integer> ids = shard.getRouteIds(from, to);
+            if (ids == null) {
+                return null;
+            }
+            RoutePart part = new RoutePart(ids.size());
+            int i = 0;
+            for (int id : ids) { // Ordered by ID, so a voyage is found again by a binary search.
+                part.ids[i] = id;
+                part.freeSeatCounts[i] = shard.getFreeSeatCount(id);
+                part.cheapestPrices[i] = shard.getCheapestFreeSeatPrice(id);
+                i++;
+            }
+            return part;
+        }
+    }
+
+    /**
+     * Answers the Z report and the voyage search over the voyages of all shards. The Z report is only run between
+     * batches, when no shard is running. A search is answered from the parts of its route the shards recorded, while
+     * they go on with later commands, so it does not look at the voyages of the shards.
+     */
+    private class MergedView extends VoyageManagementSystem {
+        private RoutePart[] parts; // The parts of the route of the search being answered
+
+        /**
+         * Answers a search of the batch from the parts of its route. Searches are answered by the shard that recorded
+         * the last part, so two shards may answer one at the same time.
+         */
+        synchronized void processSearch(int index, OutputSink output) {
+            parts = routeParts[index];
+            try {
+                processCommand(batch[index], output);
+            } finally {
+                parts = null;
+            }
+        }
+
+        @Override
+        Voyage getVoyage(int id) {
+            return shards[shardOfId(id)].getVoyage(id);
+        }
+
+        /**
+         * Merges the voyages of the shards, which are each ordered by ID, into one list ordered by ID.
+         */
+        @Override
+        Collection<Voyage> getVoyagesById() {
+            List<Voyage> voyagesById = new ArrayList<>();
+            List<Iterator<Map.Entry<Integer, Voyage>>> iterators = new ArrayList<>();
+            PriorityQueue<Map.Entry<Integer, Voyage>> heads = new PriorityQueue<>(Map.Entry.comparingByKey());
+            for (VoyageManagementSystem shard : shards) {
+                Iterator<Map.Entry<Integer, Voyage>> iterator = shard.voyages.entrySet().iterator();
+                iterators.add(iterator);
+                if (iterator.hasNext()) {
+                    heads.add(iterator.next());
+                }
+            }
+            while (!heads.isEmpty()) {
+                Map.Entry<Integer, Voyage> head = heads.poll();
+                voyagesById.add(head.getValue());
+                Iterator<Map.Entry<Integer, Voyage>> iterator = iterators.get(shardOfId(head.getKey()));
+                if (iterator.hasNext()) {
+                    heads.add(iterator.next());
+                }
+            }
+            return voyagesById;
+        }
+
+        @Override
+        Collection<Integer> getRouteIds(String from, String to) {
+            List<Integer> ids = new ArrayList<>();
+            for (RoutePart part : parts) {
+                if (part != null) {
+                    for (int id : part.ids) {
+                        ids.add(id);
+                    }
+                }
+            }
+            if (ids.isEmpty()) {
+                return null;
+            }
+            Collections.sort(ids);
+            return ids;
+        }
+
+        @Override
+        double getCheapestFreeSeatPrice(int id) {
+            RoutePart part = parts[shardOfId(id)];
+            return part.cheapestPrices[Arrays.binarySearch(part.ids, id)];
+        }
+
+        @Override
+        int getFreeSeatCount(int id) {
+            RoutePart part = parts[shardOfId(id)];
+            return part.freeSeatCounts[Arrays.binarySearch(part.ids, id)];
+        }
+    }
+}
@@ -6,16 +6,16 @@ public class StandardBus extends Bus {
     /**
      * Generates the seating layout for the standard bus, indicating occupied and unoccupied seats.
      *
-     * @param seatStatus An array of boolean values representing the occupancy status of each seat (true if available, false if occupied).
+     * @param seats The seat map of the voyage, showing which seats are sold.
      * @return A string representation of the seating layout.
      */
     @Override
-    public String getSeatsLayout(boolean[] seatStatus) {
+    public String getSeatsLayout(SeatMap seats) {
 
         StringBuilder layout = new StringBuilder();
 
-        for (int i = 0; i < seatStatus.length; i++) {
-            layout.append(seatStatus[i] ? "*" : "X");
+        for (int i = 0; i < seats.getCapacity(); i++) {
+            layout.append(!seats.isSold(i) ? "*" : "X");
             if ((i + 1) % 2 == 0 && (i + 1) % 4 != 0) {
                 layout.append(" |");
             }
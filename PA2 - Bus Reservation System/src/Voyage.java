@@ -1,10 +1,17 @@
 
+/**
+ * A voyage with its bus and seats. Every method that reads or changes the seats, the refunds or the cancelled flag
+ * locks the voyage itself, so one voyage can be sold and refunded from several threads at once.
+ */
 public class Voyage {
     private String voyageID;
     private String departure;
     private String arrival;
     private Bus bus;
-    private boolean[] seatStatus; // Keeps the occupancy status of seats (true = empty, false = full)
+    private SeatMap seats; // Keeps the sold seats as a bitset
+    private double soldRevenue = 0.0; // the revenue of the sold seats, valid while revenueChanged is false
+    private boolean revenueChanged = false; // To track whether a seat was sold or refunded since soldRevenue was calculated
+    private String seatsLayout; // the rendered seat layout, null after a seat was sold or refunded
     private double totalRefunds = 0.0;  // a variable to store the total refund amount
     private boolean isCancelled = false; // To track whether the flight has been canceled
 
@@ -22,11 +29,7 @@ public class Voyage {
         this.departure = departure;
         this.arrival = arrival;
         this.bus = bus;
-        this.seatStatus = new boolean[bus.getCapacity()];
-        // Initialize all seats as available.
-        for (int i = 0; i < seatStatus.length; i++) {
-            seatStatus[i] = true; // true = boş
-        }
+        this.seats = new SeatMap(bus.getCapacity()); // All seats start as available.
     }
 
     public String getVoyageID() {
@@ -45,16 +48,54 @@ public class Voyage {
         return bus;
     }
 
-    public double getTotalRefunds() {
+    public synchronized double getTotalRefunds() {
         return totalRefunds;
     }
 
-    public void setTotalRefunds(double totalRefunds) {
+    public synchronized void setTotalRefunds(double totalRefunds) {
         this.totalRefunds = totalRefunds;
     }
 
-    public boolean[] getSeatStatus() {
-        return seatStatus;
+    public SeatMap getSeats() {
+        return seats;
+    }
+
+    public synchronized int getSoldSeatCount() {
+        return seats.getSoldCount();
+    }
+
+    /**
+     * Checks whether a seat is empty.
+     *
+     * @param seatNumber The seat number (1-based index), which must be a seat of the bus.
+     * @return true if the seat is empty, false if it is sold.
+     */
+    public synchronized boolean isSeatEmpty(int seatNumber) {
+        return !seats.isSold(seatNumber - 1);
+    }
+
+    /**
+     * Marks a seat as sold. Selling a seat that is already sold changes nothing.
+     *
+     * @param seatNumber The seat number (1-based index), which must be a seat of the bus.
+     */
+    public synchronized void sellSeat(int seatNumber) {
+        if (seats.sell(seatNumber - 1)) {
+            revenueChanged = true;
+            seatsLayout = null;
+        }
+    }
+
+    /**
+     * Marks a seat as empty again. Refunding a seat that is already empty changes nothing.
+     *
+     * @param seatNumber The seat number (1-based index), which must be a seat of the bus.
+     */
+    public synchronized void refundSeat(int seatNumber) {
+        if (seats.free(seatNumber - 1)) {
+            revenueChanged = true;
+            seatsLayout = null;
+        }
     }
 
     public double getTicketPrice() {
@@ -67,9 +108,9 @@ public class Voyage {
      * @param seatNumber The seat number (1-based index) to book.
      * @return true if the seat was available and successfully booked, false otherwise (if already booked).
      */
-    public boolean sellTicketSeat(int seatNumber) {
+    public synchronized boolean sellTicketSeat(int seatNumber) {
         int index = seatNumber - 1;
-        return index >= 0 && index < seatStatus.length && seatStatus[index]; // Invalid seat number or seat already occupied
+        return index >= 0 && index < seats.getCapacity() && !seats.isSold(index); // Invalid seat number or seat already occupied
     }
 
     /**
@@ -78,25 +119,30 @@ public class Voyage {
      * @param seatNumber The seat number (1-based index) for which the ticket is to be cancelled.
      * @return true if the seat was previously booked and successfully cancelled, false otherwise (if already available).
      */
-    public boolean cancelTicket(int seatNumber) {
+    public synchronized boolean cancelTicket(int seatNumber) {
         int index = seatNumber - 1;
-        return index >= 0 && index < seatStatus.length && !seatStatus[index]; // invalid seat number or seat is already empty
+        return index >= 0 && index < seats.getCapacity() && seats.isSold(index); // invalid seat number or seat is already empty
     }
 
     /**
      * Calculates the total revenue generated from sold tickets, minus any refunds.
+     * The revenue of the sold seats is kept between calls and only added up again after a seat was sold or refunded,
+     * and then only the sold seats are visited. They are still added in seat order, so the sum is exactly the same as
+     * adding every seat one by one; a running total updated on each sale would round differently.
      *
      * @return The net revenue for the voyage.
      */
-    public double calculateRevenue() {
+    public synchronized double calculateRevenue() {
         if (isCancelled) return totalRefunds;
-        double totalRevenue = 0.0;
-        for (int i = 0; i < seatStatus.length; i++) {
-            if (!seatStatus[i]) {
+        if (revenueChanged) {
+            double totalRevenue = 0.0;
+            for (int i = seats.nextSold(0); i >= 0; i = seats.nextSold(i + 1)) {
                 totalRevenue += bus.calculateTicketPrice(i + 1); // Calculate surcharge for premium seats
             }
+            soldRevenue = totalRevenue;
+            revenueChanged = false;
         }
-        return totalRevenue + totalRefunds;
+        return soldRevenue + totalRefunds;
     }
 
     /**
@@ -104,16 +150,169 @@ public class Voyage {
      *
      * @return A string containing detailed information about the voyage.
      */
-    public String getDetailedVoyageInfo() {
+    public synchronized String getDetailedVoyageInfo() {
         StringBuilder sb = new StringBuilder();
         sb.append("Voyage " + voyageID + "\n");
         sb.append(departure + "-" + arrival + "\n");
-        sb.append(bus.getSeatsLayout(seatStatus));
+        sb.append(getSeatsLayout());
         sb.append("\nRevenue: " + String.format("%.2f", calculateRevenue()));
         return sb.toString();
     }
 
-    public void resetRevenue() {
+    /**
+     * Finds the first empty seat at or after a seat.
+     *
+     * @param fromSeat The seat number (1-based index) to start from.
+     * @return The seat number of the empty seat, or -1 if there is none.
+     */
+    public synchronized int findNextFreeSeat(int fromSeat) {
+        int index = seats.nextFree(fromSeat - 1);
+        return index < 0 ? -1 : index + 1;
+    }
+
+    /**
+     * Finds the first run of empty seats with consecutive seat numbers at or after a seat.
+     *
+     * @param count    The number of empty seats in a row that is needed.
+     * @param fromSeat The seat number (1-based index) to start from.
+     * @return The seat number of the first seat of the run, or -1 if there is no such run.
+     */
+    public synchronized int findFreeSeatBlock(int count, int fromSeat) {
+        int index = seats.findFreeRun(count, fromSeat - 1);
+        return index < 0 ? -1 : index + 1;
+    }
+
+    /**
+     * Finds the first empty premium seat at or after a seat. Premium seats are the single seats on the left
+     * of a premium bus, whose seat number % 3 is 1.
+     *
+     * @param fromSeat The seat number (1-based index) to start from.
+     * @return The seat number of the empty premium seat, or -1 if there is none or the bus is not a premium bus.
+     */
+    public synchronized int findNextFreePremiumSeat(int fromSeat) {
+        if (!(bus instanceof PremiumBus)) {
+            return -1;
+        }
+        int index = seats.nextFree(fromSeat - 1, 3, 0);
+        return index < 0 ? -1 : index + 1;
+    }
+
+    public synchronized int getFreeSeatCount() {
+        return seats.getCapacity() - seats.getSoldCount();
+    }
+
+    /**
+     * Finds the price of the cheapest empty seat. Regular seats are never more expensive than premium seats,
+     * so a premium seat price is only returned when every empty seat is a premium seat.
+     *
+     * @return The price of the cheapest empty seat, or -1 if every seat is sold.
+     */
+    public synchronized double getCheapestFreeSeatPrice() {
+        int freeSeats = getFreeSeatCount();
+        if (freeSeats == 0) {
+            return -1;
+        }
+        if (bus instanceof PremiumBus && seats.countFree(3, 0) == freeSeats) {
+            return bus.calculateTicketPrice(1);
+        }
+        return bus.getTicketPrice();
+    }
+
+    /**
+     * Replaces the seats of the voyage, for example with the seats read from a snapshot.
+     *
+     * @param seats The new seat map, which must have the capacity of the bus.
+     */
+    public synchronized void restoreSeats(SeatMap seats) {
+        this.seats = seats;
+        revenueChanged = true;
+        seatsLayout = null;
+    }
+
+    public synchronized boolean isCancelled() {
+        return isCancelled;
+    }
+
+    /**
+     * Generates the seating layout of the voyage. The layout is kept until a seat is sold or refunded,
+     * so reports of voyages that did not change do not render it again.
+     *
+     * @return A string representation of the seating layout.
+     */
+    public synchronized String getSeatsLayout() {
+        if (seatsLayout == null) {
+            seatsLayout = bus.getSeatsLayout(seats);
+        }
+        return seatsLayout;
+    }
+
+    /**
+     * Sells several seats at once. Either every seat is sold or, if any seat is out of range or already sold
+     * or the voyage is cancelled, none of them is. A seat given twice is sold once.
+     *
+     * @param seatNumbers The seat numbers (1-based index) to sell.
+     * @return true if the seats were sold, false if nothing was changed.
+     */
+    public boolean sellSeats(int[] seatNumbers) {
+        return sellSeats(seatNumbers, seatNumbers.length);
+    }
+
+    /**
+     * Sells the first seats of an array at once, the same as sellSeats(int[]).
+     *
+     * @param seatNumbers The seat numbers (1-based index) to sell.
+     * @param count       The number of seats of the array to sell.
+     * @return true if the seats were sold, false if nothing was changed.
+     */
+    public synchronized boolean sellSeats(int[] seatNumbers, int count) {
+        if (isCancelled) return false;
+        for (int i = 0; i < count; i++) {
+            if (!sellTicketSeat(seatNumbers[i])) {
+                return false;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            sellSeat(seatNumbers[i]);
+        }
+        return true;
+    }
+
+    /**
+     * Refunds several seats at once and adds their refund amounts to the total refunds. Either every seat is refunded
+     * or, if any seat is out of range or already empty or the voyage is cancelled, none of them is.
+     * A seat given twice is emptied once but its refund amount is added twice, as the REFUND_TICKET command does.
+     *
+     * @param seatNumbers The seat numbers (1-based index) to refund.
+     * @return true if the seats were refunded, false if nothing was changed.
+     */
+    public boolean refundSeats(int[] seatNumbers) {
+        return refundSeats(seatNumbers, seatNumbers.length);
+    }
+
+    /**
+     * Refunds the first seats of an array at once, the same as refundSeats(int[]).
+     *
+     * @param seatNumbers The seat numbers (1-based index) to refund.
+     * @param count       The number of seats of the array to refund.
+     * @return true if the seats were refunded, false if nothing was changed.
+     */
+    public synchronized boolean refundSeats(int[] seatNumbers, int count) {
+        if (isCancelled) return false;
+        for (int i = 0; i < count; i++) {
+            if (!cancelTicket(seatNumbers[i])) {
+                return false;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            int seatNumber = seatNumbers[i];
+            refundSeat(seatNumber);
+            double refundAmount = bus.calculateTicketPrice(seatNumber) - (bus.calculateTicketPrice(seatNumber) * (1 - bus.getRefundRate() / 100));
+            totalRefunds += refundAmount;
+        }
+        return true;
+    }
+
+    public synchronized void resetRevenue() {
         isCancelled = true;
 
     }
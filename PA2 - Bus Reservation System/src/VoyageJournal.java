@@ -0,0 +1,488 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the voyages on disk, so a restart does not have to replay the whole command history.
+ * Every change of the voyages (a voyage initialized, seats sold or refunded, a voyage cancelled) is appended to a binary
+ * journal before it is applied. Every given number of changes all voyages with their seat bitmaps are written to a
+ * snapshot, and a new journal is started after it, so recovery reads the snapshot and replays at most one journal.
+ *
+ * The files are kept in one directory: "snapshot" holds the voyages and the generation of the journal that continues
+ * it, and "journal-&lt;generation&gt;" holds the changes after it. Each journal record is an int length, an int
+ * CRC32 of the length and the bytes, and that many bytes. On recovery the first record that is cut off, fails its
+ * checksum or can not be applied is taken as the end of the journal, and the journal is truncated there, so neither
+ * a record cut off by a crash nor the zeros a file system may leave after it stop the recovery. The snapshot is written
+ * to a temporary file, forced to the disk and renamed over the old one, so there is always one complete snapshot.
+ * Journals older than the snapshot, left behind by a crash right after the rename, are deleted on recovery.
+ *
+ * By default every record is forced to the disk before the change is applied, so a change is kept even if the machine
+ * stops right after. A journal opened without syncing every record only flushes its records to the operating system,
+ * which keeps them if the process stops but may lose the last ones if the machine does; it is still forced to the disk
+ * before a snapshot is written and when it is closed.
+ *
+ * A record that can not be written throws an UncheckedIOException, so the caller does not apply the change, and closes
+ * the journal: every later record throws as well, since a record after a partly written one could not be read back.
+ */
+public class VoyageJournal implements Closeable {
+    private static final int SNAPSHOT_MAGIC = 0x564a534e;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final byte INIT = 1;
+    private static final byte SELL = 2;
+    private static final byte REFUND = 3;
+    private static final byte CANCEL = 4;
+    private static final int RECORD_HEADER = 8; // The length and the checksum of a record
+    private static final int MIN_RECORD = 5; // The type and the voyage ID of a record
+
+    private final File directory;
+    private final int snapshotInterval;
+    private final boolean syncEveryRecord;
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+    private final DataOutputStream recordData = new DataOutputStream(record);
+    private final CRC32 checksum = new CRC32();
+    private long generation;
+    private FileOutputStream journalOut;
+    private DataOutputStream journal;
+    private long journalLength; // The length of the complete records of the open journal
+    private boolean failed; // Set when a record could not be written, after which the journal takes no more records
+    private int changesSinceSnapshot;
+
+    private VoyageJournal(File directory, int snapshotInterval, boolean syncEveryRecord) {
+        this.directory = directory;
+        this.snapshotInterval = snapshotInterval;
+        this.syncEveryRecord = syncEveryRecord;
+    }
+
+    /**
+     * Opens the journal in a directory and recovers the voyages kept there, forcing every record to the disk.
+     *
+     * @param directory        Path of the directory of the journal.
+     * @param snapshotInterval The number of changes between snapshots, or 0 to never write a snapshot by itself.
+     * @param voyages          The map the recovered voyages are put into.
+     * @return The open journal, ready for new changes.
+     * @throws IOException if the files cannot be read or written.
+     */
+    public static VoyageJournal open(String directory, int snapshotInterval, Map<Integer, Voyage> voyages) throws IOException {
+        return open(directory, snapshotInterval, true, voyages);
+    }
+
+    /**
+     * Opens the journal in a directory and recovers the voyages kept there: the snapshot is loaded and the changes
+     * of the journal after it are replayed. The directory is created if it does not exist.
+     *
+     * @param directory        Path of the directory of the journal.
+     * @param snapshotInterval The number of changes between snapshots, or 0 to never write a snapshot by itself.
+     * @param syncEveryRecord  true to force every record to the disk, false to only flush it to the operating system.
+     * @param voyages          The map the recovered voyages are put into.
+     * @return The open journal, ready for new changes.
+     * @throws IOException if the files cannot be read or written.
+     */
+    public static VoyageJournal open(String directory, int snapshotInterval, boolean syncEveryRecord,
+                                     Map<Integer, Voyage> voyages) throws IOException {
+        VoyageJournal voyageJournal = new VoyageJournal(new File(directory), snapshotInterval, syncEveryRecord);
+        voyageJournal.recover(voyages);
+        return voyageJournal;
+    }
+
+    private void recover(Map<Integer, Voyage> voyages) throws IOException {
+        Files.createDirectories(directory.toPath());
+        File snapshot = new File(directory, "snapshot");
+        if (snapshot.exists()) {
+            readSnapshot(snapshot, voyages);
+        }
+        deleteOldFiles();
+        File journalFile = journalFile(generation);
+        long end = 0;
+        if (journalFile.exists()) {
+            end = replay(journalFile, voyages);
+            try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+                file.setLength(end); // Drops a record that was cut off by a crash and everything after it.
+            }
+        }
+        openJournal(journalFile, true);
+        journalLength = end;
+    }
+
+    /**
+     * Deletes the journals of the generations before the snapshot and a snapshot that was not finished. A crash
+     * between renaming a snapshot and deleting the journal it replaces leaves such a journal behind.
+     */
+    private void deleteOldFiles() throws IOException {
+        Files.deleteIfExists(new File(directory, "snapshot.tmp").toPath());
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (name.matches("journal-\\d+") && Long.parseLong(name.substring("journal-".length())) < generation) {
+                Files.delete(file.toPath());
+            }
+        }
+    }
+
+    private void openJournal(File file, boolean append) throws IOException {
+        journalOut = new FileOutputStream(file, append);
+        journal = new DataOutputStream(new BufferedOutputStream(journalOut));
+    }
+
+    private void readSnapshot(File snapshot, Map<Integer, Voyage> voyages) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshot)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException(snapshot + " is not a voyage snapshot");
+            }
+            generation = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                int id = in.readInt();
+                Voyage voyage = readVoyage(id, in);
+                voyage.setTotalRefunds(in.readDouble());
+                long[] words = new long[in.readInt()];
+                for (int w = 0; w < words.length; w++) {
+                    words[w] = in.readLong();
+                }
+                voyage.restoreSeats(new SeatMap(voyage.getBus().getCapacity(), words));
+                voyages.put(id, voyage);
+            }
+        }
+    }
+
+    /**
+     * Applies the records of a journal to the voyages, up to the first record that is cut off, fails its checksum
+     * or can not be applied.
+     *
+     * @return The length of the records that were applied.
+     */
+    private long replay(File journalFile, Map<Integer, Voyage> voyages) throws IOException {
+        long end = 0;
+        long size = journalFile.length();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)))) {
+            while (size - end >= RECORD_HEADER) {
+                int length = in.readInt();
+                int crc = in.readInt();
+                if (length < MIN_RECORD || length > size - end - RECORD_HEADER) {
+                    break; // A record cut off by a crash, or no record at all.
+                }
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                if (crc != checksum(length, bytes, length)) {
+                    break;
+                }
+                try {
+                    apply(new DataInputStream(new ByteArrayInputStream(bytes)), voyages);
+                } catch (IOException | RuntimeException e) {
+                    break; // A record with a valid checksum that still does not fit the voyages.
+                }
+                end += RECORD_HEADER + length;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Computes the checksum of a record from its length and its bytes, so a record of zeros does not pass.
+     */
+    private int checksum(int length, byte[] bytes, int count) {
+        checksum.reset();
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            checksum.update(length >>> shift);
+        }
+        checksum.update(bytes, 0, count);
+        return (int) checksum.getValue();
+    }
+
+    private void apply(DataInputStream in, Map<Integer, Voyage> voyages) throws IOException {
+        byte type = in.readByte();
+        int id = in.readInt();
+        switch (type) {
+            case INIT:
+                voyages.put(id, readVoyage(id, in));
+                break;
+            case SELL:
+                voyages.get(id).sellSeats(readSeats(in));
+                break;
+            case REFUND:
+                voyages.get(id).refundSeats(readSeats(in));
+                break;
+            case CANCEL:
+                voyages.remove(id).resetRevenue();
+                break;
+            default:
+                throw new IOException("Unknown journal record type " + type);
+        }
+    }
+
+    private static Voyage readVoyage(int id, DataInputStream in) throws IOException {
+        String departure = in.readUTF();
+        String arrival = in.readUTF();
+        String busType = in.readUTF();
+        int capacity = in.readInt();
+        double ticketPrice = in.readDouble();
+        double refundRate = in.readDouble();
+        double premiumFee = in.readDouble();
+        Bus bus;
+        switch (busType) {
+            case "Standard":
+                bus = new StandardBus(capacity, ticketPrice, refundRate);
+                break;
+            case "Premium":
+                bus = new PremiumBus(capacity, ticketPrice, premiumFee, refundRate);
+                break;
+            case "Minibus":
+                bus = new Minibus(capacity, ticketPrice);
+                break;
+            default:
+                throw new IOException("Unknown bus type " + busType);
+        }
+        return new Voyage(String.valueOf(id), departure, arrival, bus);
+    }
+
+    private static void writeVoyage(Voyage voyage, DataOutputStream out) throws IOException {
+        Bus bus = voyage.getBus();
+        out.writeUTF(voyage.getDeparture());
+        out.writeUTF(voyage.getArrival());
+        out.writeUTF(bus.busType);
+        out.writeInt(bus.getCapacity());
+        out.writeDouble(bus.getTicketPrice());
+        out.writeDouble(bus.getRefundRate());
+        out.writeDouble(bus instanceof PremiumBus ? ((PremiumBus) bus).getPremiumFee() : 0);
+    }
+
+    private static int[] readSeats(DataInputStream in) throws IOException {
+        int[] seats = new int[in.readInt()];
+        for (int i = 0; i < seats.length; i++) {
+            seats[i] = in.readInt();
+        }
+        return seats;
+    }
+
+    private static void writeSeats(int[] seats, int count, DataOutputStream out) throws IOException {
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            out.writeInt(seats[i]);
+        }
+    }
+
+    /**
+     * Records that a voyage was initialized.
+     *
+     * @param id     The ID of the voyage.
+     * @param voyage The new voyage.
+     * @throws UncheckedIOException if the record can not be written, in which case the change must not be applied.
+     */
+    public void logInit(int id, Voyage voyage) {
+        try {
+            startRecord(INIT, id);
+            writeVoyage(voyage, recordData);
+            endRecord();
+        } catch (IOException e) {
+            throw fail(e);
+        }
+    }
+
+    /**
+     * Records that seats of a voyage were sold.
+     *
+     * @param id    The ID of the voyage.
+     * @param seats The seat numbers (1-based index) that were sold.
+     * @param count The number of seats of the array that were sold.
+     * @throws UncheckedIOException if the record can not be written, in which case the change must not be applied.
+     */
+    public void logSell(int id, int[] seats, int count) {
+        try {
+            startRecord(SELL, id);
+            writeSeats(seats, count, recordData);
+            endRecord();
+        } catch (IOException e) {
+            throw fail(e);
+        }
+    }
+
+    /**
+     * Records that seats of a voyage were refunded.
+     *
+     * @param id    The ID of the voyage.
+     * @param seats The seat numbers (1-based index) that were refunded, repeated seats included.
+     * @param count The number of seats of the array that were refunded.
+     * @throws UncheckedIOException if the record can not be written, in which case the change must not be applied.
+     */
+    public void logRefund(int id, int[] seats, int count) {
+        try {
+            startRecord(REFUND, id);
+            writeSeats(seats, count, recordData);
+            endRecord();
+        } catch (IOException e) {
+            throw fail(e);
+        }
+    }
+
+    /**
+     * Records that a voyage was cancelled.
+     *
+     * @param id The ID of the voyage.
+     * @throws UncheckedIOException if the record can not be written, in which case the change must not be applied.
+     */
+    public void logCancel(int id) {
+        try {
+            startRecord(CANCEL, id);
+            endRecord();
+        } catch (IOException e) {
+            throw fail(e);
+        }
+    }
+
+    private void startRecord(byte type, int id) throws IOException {
+        if (failed) {
+            throw new IOException("The journal was closed after a record could not be written");
+        }
+        record.reset();
+        recordData.writeByte(type);
+        recordData.writeInt(id);
+    }
+
+    /**
+     * Appends the record to the journal and flushes it, so it is kept even if the process stops right after,
+     * and forces it to the disk if every record is synced, so it is kept even if the machine stops.
+     */
+    private void endRecord() throws IOException {
+        byte[] bytes = record.toByteArray();
+        journal.writeInt(bytes.length);
+        journal.writeInt(checksum(bytes.length, bytes, bytes.length));
+        journal.write(bytes);
+        journal.flush();
+        if (syncEveryRecord) {
+            journalOut.getFD().sync();
+        }
+        journalLength += RECORD_HEADER + bytes.length;
+        changesSinceSnapshot++;
+    }
+
+    /**
+     * Closes the journal after a record could not be written. The part of the record that was written is cut off
+     * if the file still allows it; otherwise recovery drops it by its checksum.
+     *
+     * @return The exception to throw to the caller.
+     */
+    private UncheckedIOException fail(IOException e) {
+        if (!failed) {
+            failed = true;
+            try {
+                journalOut.getChannel().truncate(journalLength);
+            } catch (IOException ignored) {
+                // Recovery drops the partly written record.
+            }
+            try {
+                journalOut.close(); // Not the buffered stream, which would write what is left of the record.
+            } catch (IOException ignored) {
+                // The journal is not used any more.
+            }
+        }
+        return new UncheckedIOException(e);
+    }
+
+    /**
+     * Writes a snapshot if the given number of changes were recorded since the last one.
+     *
+     * @param voyages The current voyages.
+     */
+    public void snapshotIfDue(Map<Integer, Voyage> voyages) {
+        if (!failed && snapshotInterval > 0 && changesSinceSnapshot >= snapshotInterval) {
+            snapshot(voyages);
+        }
+    }
+
+    /**
+     * Writes a snapshot of all voyages and starts a new journal after it. The journal is forced to the disk first, so
+     * its records are kept if the rename of the snapshot is lost. The snapshot is forced to the disk before it replaces
+     * the old one, and the old journal is deleted once the snapshot is in place.
+     *
+     * @param voyages The current voyages.
+     */
+    public void snapshot(Map<Integer, Voyage> voyages) {
+        if (failed) {
+            return;
+        }
+        try {
+            journal.flush();
+            journalOut.getFD().sync();
+            File temporary = new File(directory, "snapshot.tmp");
+            FileOutputStream file = new FileOutputStream(temporary);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeLong(generation + 1);
+                out.writeInt(voyages.size());
+                for (Map.Entry<Integer, Voyage> entry : voyages.entrySet()) {
+                    Voyage voyage = entry.getValue();
+                    out.writeInt(entry.getKey());
+                    writeVoyage(voyage, out);
+                    out.writeDouble(voyage.getTotalRefunds());
+                    long[] words = voyage.getSeats().getWords();
+                    out.writeInt(words.length);
+                    for (long word : words) {
+                        out.writeLong(word);
+                    }
+                }
+                out.flush();
+                file.getFD().sync(); // Otherwise the rename could reach the disk before the content.
+            }
+            Files.move(temporary.toPath(), new File(directory, "snapshot").toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory();
+
+            journal.close();
+            Files.deleteIfExists(journalFile(generation).toPath());
+            generation++;
+            openJournal(journalFile(generation), false);
+            journalLength = 0;
+            changesSinceSnapshot = 0;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Forces the directory to the disk, so the rename of the snapshot is kept. Not every platform can open a directory;
+     * there the rename is left to the file system.
+     */
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // The directory can not be opened for reading on this platform.
+        }
+    }
+
+    private File journalFile(long generation) {
+        return new File(directory, "journal-" + generation);
+    }
+
+    /**
+     * Forces the records that were not synced yet to the disk and closes the journal.
+     */
+    @Override
+    public void close() throws IOException {
+        if (failed) {
+            return; // Closed when the record failed.
+        }
+        journal.flush();
+        journalOut.getFD().sync();
+        journal.close();
+    }
+}
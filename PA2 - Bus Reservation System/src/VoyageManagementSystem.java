@@ -1,111 +1,124 @@
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 /**
  * Manages all operations related to voyages including initialization, ticket sales, refunds,
- * information display, and cancellation.
+ * information display, cancellation, and free seat and voyage searches.
  */
 public class VoyageManagementSystem {
-    static Map<Integer, Voyage> voyages = new HashMap<>();
+    final Map<Integer, Voyage> voyages = new TreeMap<>(); // Ordered by ID, so the Z report lists voyages by ID
+    // The IDs of the voyages of every route, by departure and then arrival, so a search does not look at every voyage
+    final Map<String, Map<String, Set<Integer>>> routes = new HashMap<>();
+    VoyageJournal journal; // Records every change of the voyages when it is set, null to keep them only in memory
+    private final Command command = new Command(); // Reused for every command, a system runs one command at a time
 
     /**
      * Processes commands related to voyage management and outputs the results to a file.
+     * The command is parsed into one Command object that is reused for every line, and handed to the handler of its type.
      *
      * @param command    The command string containing details on what action to perform.
-     * @param outputFile The file path where output related to the command execution will be written.
+     * @param output     The sink where output related to the command execution will be written.
      */
-    static void processCommand(String command, String outputFile) {
-        String[] parts = command.split("\\t");
-        switch (parts[0]) {
-            case "INIT_VOYAGE":
-                FileOutput.writeToFile(outputFile, "COMMAND: " + String.join("\t", parts), true, true);
-                if ((parts[1].equals("Minibus") && parts.length == 7) ||
-                        (parts[1].equals("Standard") && parts.length == 8) ||
-                        (parts[1].equals("Premium") && parts.length == 9)) {
-                    initVoyage(parts, outputFile);
+    void processCommand(String command, OutputSink output) {
+        Command parts = this.command;
+        parts.parse(command);
+        output.writeLine("COMMAND: ", parts.getText());
+        switch (parts.getType()) {
+            case INIT_VOYAGE:
+                if ((parts.fieldEquals(1, "Minibus") && parts.getFieldCount() == 7) ||
+                        (parts.fieldEquals(1, "Standard") && parts.getFieldCount() == 8) ||
+                        (parts.fieldEquals(1, "Premium") && parts.getFieldCount() == 9)) {
+                    initVoyage(parts, output);
                 } else {
-                    FileOutput.writeToFile(outputFile, "ERROR: Erroneous usage of \"INIT_VOYAGE\" command!", true, true);
+                    output.writeLine("ERROR: Erroneous usage of \"INIT_VOYAGE\" command!");
                 }
                 break;
-            case "SELL_TICKET":
-                FileOutput.writeToFile(outputFile, "COMMAND: " + String.join("\t", parts), true, true);
-                sellTicket(parts, outputFile);
+            case SELL_TICKET:
+                sellTicket(parts, output);
                 break;
-            case "REFUND_TICKET":
-                FileOutput.writeToFile(outputFile, "COMMAND: " + String.join("\t", parts), true, true);
-                refundTicket(parts, outputFile);
+            case REFUND_TICKET:
+                refundTicket(parts, output);
                 break;
-            case "PRINT_VOYAGE":
-                FileOutput.writeToFile(outputFile, "COMMAND: " + String.join("\t", parts), true, true);
-                printVoyage(parts, outputFile);
+            case PRINT_VOYAGE:
+                printVoyage(parts, output);
                 break;
-            case "Z_REPORT":
-                FileOutput.writeToFile(outputFile, "COMMAND: " + String.join("\t", parts), true, true);
-                generateZReport(parts, outputFile);
+            case Z_REPORT:
+                generateZReport(parts, output);
                 break;
-            case "CANCEL_VOYAGE":
-                FileOutput.writeToFile(outputFile, "COMMAND: " + String.join("\t", parts), true, true);
-                cancelVoyage(parts, outputFile);
+            case CANCEL_VOYAGE:
+                cancelVoyage(parts, output);
+                break;
+            case FIND_SEATS:
+                findSeats(parts, output);
+                break;
+            case SEARCH_VOYAGES:
+                searchVoyages(parts, output);
                 break;
             default:
-                FileOutput.writeToFile(outputFile, "COMMAND: " + String.join("\t", parts), true, true);
-                FileOutput.writeToFile(outputFile, "ERROR: There is no command namely " + parts[0] + "!", true, true);
+                output.writeLine("ERROR: There is no command namely " + parts.getField(0) + "!");
                 break;
         }
+        if (journal != null) {
+            journal.snapshotIfDue(voyages);
+        }
     }
 
     /**
      * Initializes a voyage and stores it in the system. Details are read from command parts and written to the output file.
      *
      * @param parts      The parts of the command containing all necessary data to create a new voyage.
-     * @param outputFile The file where the operation output will be written.
+     * @param output     The sink where the operation output will be written.
      */
-    private static void initVoyage(String[] parts, String outputFile) {
+    private void initVoyage(Command parts, OutputSink output) {
 
-        String busType = parts[1];
-        int id = Integer.parseInt(parts[2]);
-        String from = parts[3];
-        String to = parts[4];
-        int row = Integer.parseInt(parts[5]);
-        double price = Double.parseDouble(parts[6]);
+        String busType = parts.getField(1);
+        int id = parts.getIntField(2);
+        String from = parts.getField(3);
+        String to = parts.getField(4);
+        int row = parts.getIntField(5);
+        double price = Double.parseDouble(parts.getField(6));
 
         String formattedPrice = String.format("%.2f", price);
         Bus bus = null;
 
         if (id <= 0) {
-            FileOutput.writeToFile(outputFile, "ERROR: " + id + " is not a positive integer, ID of a voyage must be a positive integer!", true, true);
+            output.writeLine("ERROR: " + id + " is not a positive integer, ID of a voyage must be a positive integer!");
             return;
         }
         if (voyages.containsKey(id)) {
-            FileOutput.writeToFile(outputFile, "ERROR: There is already a voyage with ID of " + id + "!", true, true);
+            output.writeLine("ERROR: There is already a voyage with ID of " + id + "!");
             return;
         }
         if (row <= 0) {
-            FileOutput.writeToFile(outputFile, "ERROR: " + row + " is not a positive integer, number of seat rows of a voyage must be a positive integer!", true, true);
+            output.writeLine("ERROR: " + row + " is not a positive integer, number of seat rows of a voyage must be a positive integer!");
             return;
         }
         if (price <= 0) {
-            FileOutput.writeToFile(outputFile, "ERROR: " + (int) price + " is not a positive number, price must be a positive number!", true, true);
+            output.writeLine("ERROR: " + (int) price + " is not a positive number, price must be a positive number!");
             return;
         }
         switch (busType) {
             case "Standard":
-                double standardRefund = Double.parseDouble(parts[7]);
+                double standardRefund = Double.parseDouble(parts.getField(7));
                 if (standardRefund < 0 || standardRefund > 100) {
-                    FileOutput.writeToFile(outputFile, "ERROR: " + (int) standardRefund + " is not an integer that is in range of [0, 100], refund cut must be an integer that is in range of [0, 100]!", true, true);
+                    output.writeLine("ERROR: " + (int) standardRefund + " is not an integer that is in range of [0, 100], refund cut must be an integer that is in range of [0, 100]!");
                     return;
                 }
                 bus = new StandardBus(4 * row, price, standardRefund);
                 break;
             case "Premium":
-                double premiumRefund = Double.parseDouble(parts[7]);
-                double premiumFee = Double.parseDouble(parts[8]);
+                double premiumRefund = Double.parseDouble(parts.getField(7));
+                double premiumFee = Double.parseDouble(parts.getField(8));
                 if (premiumRefund < 0 || premiumRefund > 100) {
-                    FileOutput.writeToFile(outputFile, "ERROR: " + (int) premiumRefund + " is not an integer that is in range of [0, 100], refund cut must be an integer that is in range of [0, 100]!", true, true);
+                    output.writeLine("ERROR: " + (int) premiumRefund + " is not an integer that is in range of [0, 100], refund cut must be an integer that is in range of [0, 100]!");
                     return;
                 }
                 if (premiumFee < 0) {
-                    FileOutput.writeToFile(outputFile, "ERROR: " + (int) premiumFee + " is not a non-negative integer, premium fee must be a non-negative integer!", true, true);
+                    output.writeLine("ERROR: " + (int) premiumFee + " is not a non-negative integer, premium fee must be a non-negative integer!");
                     return;
                 }
                 bus = new PremiumBus(3 * row, price, premiumFee, premiumRefund);
@@ -115,21 +128,26 @@ public class VoyageManagementSystem {
                 break;
         }
 
-        voyages.put(id, new Voyage(String.valueOf(id), from, to, bus));
+        Voyage voyage = new Voyage(String.valueOf(id), from, to, bus);
+        if (journal != null) {
+            journal.logInit(id, voyage);
+        }
+        voyages.put(id, voyage);
+        addRoute(id, voyage);
 
         switch (busType) {
             case "Standard":
-                FileOutput.writeToFile(outputFile, "Voyage " + id + " was initialized as a standard (2+2) voyage from " + from + " to " + to + " with " + formattedPrice + " TL priced " + 4 * row + " regular seats. Note that refunds will be " + parts[7] + "% less than the paid amount.", true, true);
+                output.writeLine("Voyage " + id + " was initialized as a standard (2+2) voyage from " + from + " to " + to + " with " + formattedPrice + " TL priced " + 4 * row + " regular seats. Note that refunds will be " + parts.getField(7) + "% less than the paid amount.");
                 break;
             case "Minibus":
-                FileOutput.writeToFile(outputFile, "Voyage " + id + " was initialized as a minibus (2) voyage from " + from + " to " + to + " with " + formattedPrice + " TL priced " + 2 * row + " regular seats. Note that minibus tickets are not refundable.", true, true);
+                output.writeLine("Voyage " + id + " was initialized as a minibus (2) voyage from " + from + " to " + to + " with " + formattedPrice + " TL priced " + 2 * row + " regular seats. Note that minibus tickets are not refundable.");
                 break;
             case "Premium":
-                double premiumFee = Double.parseDouble(parts[8]);
-                FileOutput.writeToFile(outputFile, "Voyage " + id + " was initialized as a premium (1+2) voyage from " + from + " to " + to + " with " + formattedPrice + " TL priced " + 2 * row + " regular seats and " + String.format("%.2f", price + price * premiumFee / 100) + " TL priced " + row + " premium seats. Note that refunds will be " + parts[7] + "% less than the paid amount.", true, true);
+                double premiumFee = Double.parseDouble(parts.getField(8));
+                output.writeLine("Voyage " + id + " was initialized as a premium (1+2) voyage from " + from + " to " + to + " with " + formattedPrice + " TL priced " + 2 * row + " regular seats and " + String.format("%.2f", price + price * premiumFee / 100) + " TL priced " + row + " premium seats. Note that refunds will be " + parts.getField(7) + "% less than the paid amount.");
                 break;
             default:
-                FileOutput.writeToFile(outputFile, "ERROR: Invalid bus type!", true, true);
+                output.writeLine("ERROR: Invalid bus type!");
                 break;
         }
     }
@@ -138,36 +156,36 @@ public class VoyageManagementSystem {
      * Sells a ticket for a specified seat on a specified voyage. Details are written to the output file.
      *
      * @param parts      The parts of the command containing details for the ticket sale.
-     * @param outputFile The file where the operation output will be written.
+     * @param output     The sink where the operation output will be written.
      */
-    private static void sellTicket(String[] parts, String outputFile) {
-        if (parts.length != 3) {
-            FileOutput.writeToFile(outputFile, "ERROR: Erroneous usage of \"SELL_TICKET\" command!", true, true);
+    private void sellTicket(Command parts, OutputSink output) {
+        if (parts.getFieldCount() != 3) {
+            output.writeLine("ERROR: Erroneous usage of \"SELL_TICKET\" command!");
             return;
         }
-        int voyageId = Integer.parseInt(parts[1]);
+        int voyageId = parts.getIntField(1);
         double totalPrice = 0.0;
-        String[] seatNumbers = parts[2].split("_");
+        int seatCount = parts.splitSeats(2);
         boolean allSuccess = true; // true indicates that the ticket has been successfully sold
 
         Voyage voyage = voyages.get(voyageId);
 
         if (!voyages.containsKey(voyageId)) {
-            FileOutput.writeToFile(outputFile, "ERROR: There is no voyage with ID of " + voyageId + "!", true, true);
+            output.writeLine("ERROR: There is no voyage with ID of " + voyageId + "!");
             return;
         }
-        for (String seat : seatNumbers) {
-            int seatNumber = Integer.parseInt(seat);
+        for (int i = 0; i < seatCount; i++) {
+            int seatNumber = parts.getSeat(i);
             if (seatNumber <= 0) {
-                FileOutput.writeToFile(outputFile, "ERROR: " + seatNumber + " is not a positive integer, seat number must be a positive integer!", true, true);
+                output.writeLine("ERROR: " + seatNumber + " is not a positive integer, seat number must be a positive integer!");
                 return;
             }
             if (seatNumber > voyage.getBus().getCapacity()) {
-                FileOutput.writeToFile(outputFile, "ERROR: There is no such a seat!", true, true);
+                output.writeLine("ERROR: There is no such a seat!");
                 return;
             }
             if (!voyage.sellTicketSeat(seatNumber)) {
-                FileOutput.writeToFile(outputFile, "ERROR: One or more seats already sold!", true, true);
+                output.writeLine("ERROR: One or more seats already sold!");
                 allSuccess = false;
                 break;
             } else {
@@ -176,13 +194,13 @@ public class VoyageManagementSystem {
         }
 
         if (allSuccess) {
-            FileOutput.writeToFile(outputFile, "Seat " + String.join("-", seatNumbers) + " of the Voyage " + voyageId + " from "
-                    + voyage.getDeparture() + " to " + voyage.getArrival() + " was successfully sold for " + String.format("%.2f", totalPrice) + " TL.", true, true);
-
-            for (String seat : seatNumbers) {
-                int seatNumber = Integer.parseInt(seat) - 1;
-                voyage.getSeatStatus()[seatNumber] = false;
+            if (journal != null) {
+                journal.logSell(voyageId, parts.getSeats(), seatCount);
             }
+            output.writeLine("Seat " + parts.getSeatsText() + " of the Voyage " + voyageId + " from "
+                    + voyage.getDeparture() + " to " + voyage.getArrival() + " was successfully sold for " + String.format("%.2f", totalPrice) + " TL.");
+
+            voyage.sellSeats(parts.getSeats(), seatCount);
         }
     }
 
@@ -190,42 +208,42 @@ public class VoyageManagementSystem {
      * Processes a ticket refund for a specified seat on a specified voyage. Details are written to the output file.
      *
      * @param parts      The parts of the command containing details for the ticket refund.
-     * @param outputFile The file where the operation output will be written.
+     * @param output     The sink where the operation output will be written.
      */
-    private static void refundTicket(String[] parts, String outputFile) {
-        if (parts.length != 3) {
-            FileOutput.writeToFile(outputFile, "ERROR: Erroneous usage of \"REFUND_TICKET\" command!", true, true);
+    private void refundTicket(Command parts, OutputSink output) {
+        if (parts.getFieldCount() != 3) {
+            output.writeLine("ERROR: Erroneous usage of \"REFUND_TICKET\" command!");
             return;
         }
-        int voyageId = Integer.parseInt(parts[1]);
+        int voyageId = parts.getIntField(1);
 
         if (!voyages.containsKey(voyageId)) {
-            FileOutput.writeToFile(outputFile, "ERROR: There is no voyage with ID of " + voyageId + "!", true, true);
+            output.writeLine("ERROR: There is no voyage with ID of " + voyageId + "!");
             return;
         }
 
-        String[] seatNumbers = parts[2].split("_");
+        int seatCount = parts.splitSeats(2);
         boolean allSuccess = true; // if true, successfully indicates that the ticket has been canceled
 
         Voyage voyage = voyages.get(voyageId);
         Bus bus = voyage.getBus();
         String busType = bus.busType;
 
-        for (String seat : seatNumbers) {
-            int seatNum = Integer.parseInt(seat);
+        for (int i = 0; i < seatCount; i++) {
+            int seatNum = parts.getSeat(i);
             if (seatNum <= 0) {
-                FileOutput.writeToFile(outputFile, "ERROR: " + seat + " is not a positive integer, seat number must be a positive integer!", true, true);
+                output.writeLine("ERROR: " + parts.getSeatText(i) + " is not a positive integer, seat number must be a positive integer!");
                 return;
             }
             if (busType.equals("Premium") || busType.equals("Standard")) {
                 if (!voyage.cancelTicket(seatNum)) {
                     allSuccess = false;
                     if (seatNum > voyage.getBus().getCapacity()) {
-                        FileOutput.writeToFile(outputFile, "ERROR: There is no such a seat!", true, true);
+                        output.writeLine("ERROR: There is no such a seat!");
                         return;
                     }
-                    if (voyage.getSeatStatus()[seatNum - 1]) {
-                        FileOutput.writeToFile(outputFile, "ERROR: One or more seats are already empty!", true, true);
+                    if (voyage.isSeatEmpty(seatNum)) {
+                        output.writeLine("ERROR: One or more seats are already empty!");
                         return;
                     }
                 }
@@ -237,33 +255,31 @@ public class VoyageManagementSystem {
                 case "Standard":
                     double standardRefund = voyage.getBus().getRefundRate();
 
-                    FileOutput.writeToFile(outputFile, "Seat " + String.join("-", seatNumbers) + " of the Voyage " + voyageId + " from " + voyage.getDeparture() + " to " + voyage.getArrival() + " was successfully refunded for " + String.format("%.2f", seatNumbers.length * (voyage.getTicketPrice() - standardRefund * voyage.getTicketPrice() / 100)) + " TL.", true, true);
+                    output.writeLine("Seat " + parts.getSeatsText() + " of the Voyage " + voyageId + " from " + voyage.getDeparture() + " to " + voyage.getArrival() + " was successfully refunded for " + String.format("%.2f", seatCount * (voyage.getTicketPrice() - standardRefund * voyage.getTicketPrice() / 100)) + " TL.");
                     break;
                 case "Premium":
                     double totalRefund = 0.0;
 
-                    for (String seat : seatNumbers) {
-                        int seatNum = Integer.parseInt(seat);
+                    for (int i = 0; i < seatCount; i++) {
+                        int seatNum = parts.getSeat(i);
                         double ticketPrice = voyage.getSeatTicketPrice(seatNum);
                         double refundAmount = ticketPrice * (1 - (voyage.getBus().getRefundRate() / 100));
                         totalRefund += refundAmount;
                     }
-                    FileOutput.writeToFile(outputFile, "Seat " + String.join("-", seatNumbers) + " of the Voyage " + voyageId + " from " + voyage.getDeparture() + " to " + voyage.getArrival() + " was successfully refunded for " + String.format("%.2f", totalRefund) + " TL.", true, true);
+                    output.writeLine("Seat " + parts.getSeatsText() + " of the Voyage " + voyageId + " from " + voyage.getDeparture() + " to " + voyage.getArrival() + " was successfully refunded for " + String.format("%.2f", totalRefund) + " TL.");
                     break;
                 case "Minibus":
-                    FileOutput.writeToFile(outputFile, "ERROR: Minibus tickets are not refundable!", true, true);
+                    output.writeLine("ERROR: Minibus tickets are not refundable!");
                     return;
                 default:
-                    FileOutput.writeToFile(outputFile, "ERROR: Wrong means of transportation entered!", true, true);
+                    output.writeLine("ERROR: Wrong means of transportation entered!");
                     return;
             }
 
-            for (String seat : seatNumbers) {
-                int seatNumber = Integer.parseInt(seat);
-                voyage.getSeatStatus()[seatNumber - 1] = true;
-                double refundAmount = bus.calculateTicketPrice(seatNumber) - (bus.calculateTicketPrice(seatNumber) * (1 - voyage.getBus().getRefundRate() / 100));
-                voyage.setTotalRefunds(voyage.getTotalRefunds() + refundAmount);
+            if (journal != null) {
+                journal.logRefund(voyageId, parts.getSeats(), seatCount);
             }
+            voyage.refundSeats(parts.getSeats(), seatCount);
         }
     }
 
@@ -271,23 +287,23 @@ public class VoyageManagementSystem {
      * Prints detailed information about a specific voyage. Details are written to the output file.
      *
      * @param parts      The parts of the command specifying which voyage to print.
-     * @param outputFile The file where the operation output will be written.
+     * @param output     The sink where the operation output will be written.
      */
-    private static void printVoyage(String[] parts, String outputFile) {
-        if (parts.length != 2) {
-            FileOutput.writeToFile(outputFile, "ERROR: Erroneous usage of \"PRINT_VOYAGE\" command!", true, true);
+    private void printVoyage(Command parts, OutputSink output) {
+        if (parts.getFieldCount() != 2) {
+            output.writeLine("ERROR: Erroneous usage of \"PRINT_VOYAGE\" command!");
             return;
         }
-        int voyageId = Integer.parseInt(parts[1]);
+        int voyageId = parts.getIntField(1);
 
         if (voyageId <= 0) {
-            FileOutput.writeToFile(outputFile, "ERROR: " + parts[1] + " is not a positive integer, ID of a voyage must be a positive integer!", true, true);
+            output.writeLine("ERROR: " + parts.getField(1) + " is not a positive integer, ID of a voyage must be a positive integer!");
             return;
         }
         if (voyages.containsKey(voyageId)) {
-            FileOutput.writeToFile(outputFile, voyages.get(voyageId).getDetailedVoyageInfo(), true, true);
+            output.writeLine(voyages.get(voyageId).getDetailedVoyageInfo());
         } else {
-            FileOutput.writeToFile(outputFile, "ERROR: There is no voyage with ID of " + voyageId + "!", true, true);
+            output.writeLine("ERROR: There is no voyage with ID of " + voyageId + "!");
         }
     }
 
@@ -296,26 +312,35 @@ public class VoyageManagementSystem {
      * This Z report is written to the output file.
      *
      * @param parts      The parts of the command for generating the Z report.
-     * @param outputFile The file where the operation output will be written.
+     * @param output     The sink where the operation output will be written.
      */
-    static void generateZReport(String[] parts, String outputFile) {
-        if (parts.length != 1) {
-            FileOutput.writeToFile(outputFile, "ERROR: Erroneous usage of \"Z_REPORT\" command!", true, true);
+    private void generateZReport(Command parts, OutputSink output) {
+        if (parts.getFieldCount() != 1) {
+            output.writeLine("ERROR: Erroneous usage of \"Z_REPORT\" command!");
             return;
         }
+        generateZReport(output);
+    }
 
-        FileOutput.writeToFile(outputFile, "Z Report:\n----------------", true, true);
+    /**
+     * Writes the Z report of all voyages, for example the one added after the last command of the input.
+     *
+     * @param output     The sink where the report will be written.
+     */
+    void generateZReport(OutputSink output) {
+        output.writeLine("Z Report:\n----------------");
 
-        if (voyages.isEmpty()) {
-            FileOutput.writeToFile(outputFile, "No Voyages Available!", true, true);
-            FileOutput.writeToFile(outputFile, "----------------", true, true);
+        Collection<Voyage> voyagesById = getVoyagesById();
+        if (voyagesById.isEmpty()) {
+            output.writeLine("No Voyages Available!");
+            output.writeLine("----------------");
         } else {
-            for (Voyage voyage : voyages.values()) {
-                FileOutput.writeToFile(outputFile, "Voyage " + voyage.getVoyageID(), true, true);
-                FileOutput.writeToFile(outputFile, voyage.getDeparture() + "-" + voyage.getArrival(), true, true);
-                FileOutput.writeToFile(outputFile, voyage.getBus().getSeatsLayout(voyage.getSeatStatus()), true, true);
-                FileOutput.writeToFile(outputFile, "Revenue: " + String.format("%.2f", voyage.calculateRevenue()), true, true);
-                FileOutput.writeToFile(outputFile, "----------------", true, true);
+            for (Voyage voyage : voyagesById) {
+                output.writeLine("Voyage " + voyage.getVoyageID());
+                output.writeLine(voyage.getDeparture() + "-" + voyage.getArrival());
+                output.writeLine(voyage.getSeatsLayout());
+                output.writeLine("Revenue: " + String.format("%.2f", voyage.calculateRevenue()));
+                output.writeLine("----------------");
             }
         }
     }
@@ -324,31 +349,231 @@ public class VoyageManagementSystem {
      * Cancels a voyage and updates the system accordingly. Details of the cancellation are written to the output file.
      *
      * @param parts      The parts of the command specifying which voyage to cancel.
-     * @param outputFile The file where the operation output will be written.
+     * @param output     The sink where the operation output will be written.
      */
-    private static void cancelVoyage(String[] parts, String outputFile) {
-        if (parts.length != 2) {
-            FileOutput.writeToFile(outputFile, "ERROR: Erroneous usage of \"CANCEL_VOYAGE\" command!", true, true);
+    private void cancelVoyage(Command parts, OutputSink output) {
+        if (parts.getFieldCount() != 2) {
+            output.writeLine("ERROR: Erroneous usage of \"CANCEL_VOYAGE\" command!");
             return;
         }
 
-        int voyageId = Integer.parseInt(parts[1]);
+        int voyageId = parts.getIntField(1);
 
         if (voyageId <= 0) {
-            FileOutput.writeToFile(outputFile, "ERROR: " + parts[1] + " is not a positive integer, ID of a voyage must be a positive integer!", true, true);
+            output.writeLine("ERROR: " + parts.getField(1) + " is not a positive integer, ID of a voyage must be a positive integer!");
             return;
         }
 
         if (voyages.containsKey(voyageId)) {
             Voyage voyage = voyages.get(voyageId);
 
-            FileOutput.writeToFile(outputFile, "Voyage " + voyageId + " was successfully cancelled!", true, true);
-            FileOutput.writeToFile(outputFile, "Voyage details can be found below:", true, true);
+            if (journal != null) {
+                journal.logCancel(voyageId);
+            }
+            output.writeLine("Voyage " + voyageId + " was successfully cancelled!");
+            output.writeLine("Voyage details can be found below:");
             voyage.resetRevenue();
-            FileOutput.writeToFile(outputFile, voyage.getDetailedVoyageInfo(), true, true);
+            output.writeLine(voyage.getDetailedVoyageInfo());
             voyages.remove(voyageId);
+            removeRoute(voyageId, voyage);
+        } else {
+            output.writeLine("ERROR: There is no voyage with ID of " + voyageId + "!");
+        }
+    }
+
+    /**
+     * Finds free seats of a voyage without selling them. "FIND_SEATS id count" finds the first count free seats with
+     * consecutive seat numbers, and "FIND_SEATS id count Premium" finds the first count free premium seats.
+     * The seats found are written to the output file.
+     *
+     * @param parts      The parts of the command specifying the voyage, the number of seats and optionally the seat class.
+     * @param output     The sink where the operation output will be written.
+     */
+    private void findSeats(Command parts, OutputSink output) {
+        if ((parts.getFieldCount() != 3 && parts.getFieldCount() != 4) ||
+                (parts.getFieldCount() == 4 && !parts.fieldEquals(3, "Premium"))) {
+            output.writeLine("ERROR: Erroneous usage of \"FIND_SEATS\" command!");
+            return;
+        }
+        int voyageId = parts.getIntField(1);
+        int count = parts.getIntField(2);
+        boolean premium = parts.getFieldCount() == 4;
+
+        if (voyageId <= 0) {
+            output.writeLine("ERROR: " + parts.getField(1) + " is not a positive integer, ID of a voyage must be a positive integer!");
+            return;
+        }
+        Voyage voyage = voyages.get(voyageId);
+        if (voyage == null) {
+            output.writeLine("ERROR: There is no voyage with ID of " + voyageId + "!");
+            return;
+        }
+        if (count <= 0) {
+            output.writeLine("ERROR: " + parts.getField(2) + " is not a positive integer, number of seats must be a positive integer!");
+            return;
+        }
+
+        StringBuilder seats = new StringBuilder();
+        if (premium) {
+            if (!(voyage.getBus() instanceof PremiumBus)) {
+                output.writeLine("ERROR: Voyage " + voyageId + " has no premium seats!");
+                return;
+            }
+            int seat = 0;
+            for (int i = 0; i < count; i++) {
+                seat = voyage.findNextFreePremiumSeat(seat + 1);
+                if (seat < 0) {
+                    output.writeLine("ERROR: There are no " + count + " free premium seats!");
+                    return;
+                }
+                seats.append(i == 0 ? "" : "-").append(seat);
+            }
+            output.writeLine("Premium seats " + seats + " of the Voyage " + voyageId + " from " + voyage.getDeparture() + " to " + voyage.getArrival() + " are free.");
         } else {
-            FileOutput.writeToFile(outputFile, "ERROR: There is no voyage with ID of " + voyageId + "!", true, true);
+            int first = voyage.findFreeSeatBlock(count, 1);
+            if (first < 0) {
+                output.writeLine("ERROR: There are no " + count + " free seats next to each other!");
+                return;
+            }
+            for (int i = 0; i < count; i++) {
+                seats.append(i == 0 ? "" : "-").append(first + i);
+            }
+            output.writeLine("Seats " + seats + " of the Voyage " + voyageId + " from " + voyage.getDeparture() + " to " + voyage.getArrival() + " are free and next to each other.");
+        }
+    }
+
+    /**
+     * Lists the voyages from a departure to an arrival with their free seats and the price of their cheapest free seat.
+     * The voyages are found in the route index, so only the voyages of that route are looked at.
+     *
+     * @param parts      The parts of the command specifying the departure and the arrival.
+     * @param output     The sink where the operation output will be written.
+     */
+    private void searchVoyages(Command parts, OutputSink output) {
+        if (parts.getFieldCount() != 3) {
+            output.writeLine("ERROR: Erroneous usage of \"SEARCH_VOYAGES\" command!");
+            return;
+        }
+        String from = parts.getField(1);
+        String to = parts.getField(2);
+        Collection<Integer> ids = getRouteIds(from, to);
+        if (ids == null) {
+            output.writeLine("ERROR: There is no voyage from " + from + " to " + to + "!");
+            return;
+        }
+
+        int cheapestId = -1;
+        double cheapestPrice = 0;
+        for (int id : ids) {
+            double price = getCheapestFreeSeatPrice(id);
+            if (price < 0) {
+                output.writeLine("Voyage " + id + " from " + from + " to " + to + " is full.");
+                continue;
+            }
+            output.writeLine("Voyage " + id + " from " + from + " to " + to + " has " + getFreeSeatCount(id)
+                    + " free seats from " + String.format("%.2f", price) + " TL.");
+            if (cheapestId < 0 || price < cheapestPrice) {
+                cheapestId = id;
+                cheapestPrice = price;
+            }
+        }
+        if (cheapestId < 0) {
+            output.writeLine("There are no free seats from " + from + " to " + to + ".");
+        } else {
+            output.writeLine("The cheapest free seat from " + from + " to " + to + " is " + String.format("%.2f", cheapestPrice)
+                    + " TL on the Voyage " + cheapestId + ".");
+        }
+    }
+
+    /**
+     * Returns a voyage. The Z report and the voyage search find voyages through this method and the ones below,
+     * so a view over several systems can answer them, as the sharded replay does.
+     *
+     * @param id The ID of the voyage.
+     * @return The voyage, or null if there is no voyage with that ID.
+     */
+    Voyage getVoyage(int id) {
+        return voyages.get(id);
+    }
+
+    /**
+     * Returns the price of the cheapest free seat of a voyage, for the voyage search.
+     *
+     * @param id The ID of the voyage.
+     * @return The price, or a negative number if the voyage is full.
+     */
+    double getCheapestFreeSeatPrice(int id) {
+        return getVoyage(id).getCheapestFreeSeatPrice();
+    }
+
+    /**
+     * Returns the number of free seats of a voyage, for the voyage search.
+     *
+     * @param id The ID of the voyage.
+     * @return The number of free seats.
+     */
+    int getFreeSeatCount(int id) {
+        return getVoyage(id).getFreeSeatCount();
+    }
+
+    /**
+     * Returns every voyage ordered by ID.
+     *
+     * @return The voyages.
+     */
+    Collection<Voyage> getVoyagesById() {
+        return voyages.values();
+    }
+
+    /**
+     * Returns the IDs of the voyages of a route in the route index.
+     *
+     * @param from The departure of the route.
+     * @param to   The arrival of the route.
+     * @return The IDs ordered by ID, or null if there is no voyage from the departure to the arrival.
+     */
+    Collection<Integer> getRouteIds(String from, String to) {
+        Map<String, Set<Integer>> arrivals = routes.get(from);
+        return arrivals == null ? null : arrivals.get(to);
+    }
+
+    /**
+     * Adds a voyage to the route index.
+     *
+     * @param id     The ID of the voyage.
+     * @param voyage The voyage.
+     */
+    private void addRoute(int id, Voyage voyage) {
+        routes.computeIfAbsent(voyage.getDeparture(), departure -> new HashMap<>())
+                .computeIfAbsent(voyage.getArrival(), arrival -> new TreeSet<>())
+                .add(id);
+    }
+
+    /**
+     * Removes a voyage from the route index, and its route too if it was the last voyage of the route.
+     *
+     * @param id     The ID of the voyage.
+     * @param voyage The voyage.
+     */
+    private void removeRoute(int id, Voyage voyage) {
+        Map<String, Set<Integer>> arrivals = routes.get(voyage.getDeparture());
+        Set<Integer> ids = arrivals.get(voyage.getArrival());
+        ids.remove(id);
+        if (ids.isEmpty()) {
+            arrivals.remove(voyage.getArrival());
+            if (arrivals.isEmpty()) {
+                routes.remove(voyage.getDeparture());
+            }
+        }
+    }
+
+    /**
+     * Builds the route index again from the voyages, for example after they were recovered from a journal.
+     */
+    void indexRoutes() {
+        routes.clear();
+        for (Map.Entry<Integer, Voyage> entry : voyages.entrySet()) {
+            addRoute(entry.getKey(), entry.getValue());
         }
     }
 }
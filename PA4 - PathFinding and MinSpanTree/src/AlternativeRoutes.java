@@ -0,0 +1,352 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
+
+/**
+ * Finds the k shortest routes without repeated points between two points of a RoadGraph with Yen's algorithm.
+ * The first route is the fastest route of the shortest route tree of the start point, with the usual tie-breaking.
+ * Every next route leaves one of the routes found before at some point (the spur point), where the search is run again
+ * without the points before it and without the roads the routes found before take from there.
+ * The spur searches of a route are independent, so they run in parallel. Each task borrows a SpurSearch with its own arrays
+ * over the shared graph from a pool that belongs to one call of find, so no arrays stay behind on the pool threads.
+ * They are A* searches guided by the exact distances of the shortest route tree of the end point, and when the route of
+ * that tree from the best neighbour of the spur point is not blocked it is taken as it is, without searching at all.
+ * Otherwise the shortest unblocked such route limits the search.
+ * Spur points before the point where a route left the route it came from are skipped, since they were already searched
+ * with the same blocked roads (Lawler's improvement).
+ */
+public class AlternativeRoutes {
+    private final RoadGraph graph;
+    private final ShortestPathTree startTree;
+    private final ShortestPathTree endTree;
+    private final String end;
+    private final int target;
+
+    /**
+     * Prepares the search for the alternative routes from the start point of a shortest route tree to an end point.
+     * The shortest route tree of the end point is calculated here.
+     *
+     * @param startTree the shortest route tree of the start point
+     * @param end the end point of the routes
+     */
+    public AlternativeRoutes(ShortestPathTree startTree, String end) {
+        this.graph = startTree.getGraph();
+        this.startTree = startTree;
+        this.endTree = ShortestPathTree.calculate(graph, end);
+        this.end = end;
+        this.target = graph.getPointId(end);
+    }
+
+    /**
+     * Finds up to k routes from the start point to the end point, shortest first.
+     * Routes of equal distance are ordered by their number of roads, then by the indexes of their roads.
+     *
+     * @param k the number of routes
+     * @return the routes, each a list of roads; fewer than k if there are no more routes, empty if there is none
+     */
+    public List<List<Road>> find(int k) {
+        List<List<Road>> routes = new ArrayList<>();
+        List<Road> fastestRoute = startTree.getRoute(startTree.getStart(), end);
+        if (k <= 0 || (fastestRoute.isEmpty() && !startTree.getStart().equals(end))) {
+            return routes;
+        }
+        Route first = toRoute(fastestRoute);
+        if (first == null) {
+            routes.add(fastestRoute);
+            return routes;
+        }
+
+        List<Route> found = new ArrayList<>();
+        Queue<SpurSearch> searches = new ConcurrentLinkedQueue<>(); // Idle searches, at most one per thread that ran a spur
+        Set<Route> seen = new HashSet<>();
+        PriorityQueue<Route> candidates = new PriorityQueue<>(AlternativeRoutes::compareRoutes);
+        found.add(first);
+        seen.add(first);
+        while (found.size() < k) {
+            Route previous = found.get(found.size() - 1);
+            Route[] spurRoutes = new Route[previous.roads.length];
+            IntStream.range(previous.deviation, previous.roads.length).parallel()
+                    .forEach(i -> spurRoutes[i] = spur(searches, previous, i, found));
+            for (Route route : spurRoutes) {
+                if (route != null && seen.add(route)) {
+                    candidates.add(route);
+                }
+            }
+            if (candidates.isEmpty()) {
+                break;
+            }
+            found.add(candidates.poll());
+        }
+
+        for (Route route : found) {
+            List<Road> roads = new ArrayList<>(route.roads.length);
+            for (int road : route.roads) {
+                roads.add(graph.getRoad(road));
+            }
+            routes.add(roads);
+        }
+        return routes;
+    }
+
+    /**
+     * Runs one spur search with a search borrowed from the idle ones, or a new one if all of them are busy,
+     * and gives it back afterwards.
+     */
+    private Route spur(Queue<SpurSearch> searches, Route previous, int i, List<Route> found) {
+        SpurSearch search = searches.poll();
+        if (search == null) {
+            search = new SpurSearch();
+        }
+        try {
+            return search.spur(previous, i, found);
+        } finally {
+            searches.offer(search);
+        }
+    }
+
+    /**
+     * Converts a route given as roads to points and road indexes of the graph.
+     *
+     * @return the route, or null if it has no roads
+     */
+    private Route toRoute(List<Road> roads) {
+        if (roads.isEmpty()) {
+            return null;
+        }
+        int[] points = new int[roads.size() + 1];
+        int[] roadIndexes = new int[roads.size()];
+        int distance = 0;
+        points[0] = graph.getPointId(startTree.getStart());
+        for (int i = 0; i < roads.size(); i++) {
+            int point = points[i];
+            // The start tree reached every point of its route by the road of that point, so the road index is found there.
+            int next = graph.getPointId(roads.get(i).getPoint1()) == point
+                    ? graph.getPointId(roads.get(i).getPoint2())
+                    : graph.getPointId(roads.get(i).getPoint1());
+            points[i + 1] = next;
+            roadIndexes[i] = startTree.getParentRoad(next);
+            distance += roads.get(i).getLength();
+        }
+        return new Route(points, roadIndexes, distance, 0);
+    }
+
+    private static int compareRoutes(Route route1, Route route2) {
+        int distanceCompare = Integer.compare(route1.distance, route2.distance);
+        if (distanceCompare != 0) return distanceCompare;
+        int lengthCompare = Integer.compare(route1.roads.length, route2.roads.length);
+        if (lengthCompare != 0) return lengthCompare;
+        return Arrays.compare(route1.roads, route2.roads);
+    }
+
+    /**
+     * A route as the ids of its points and the indexes of its roads, with the index of the point
+     * where it left the route it was found from.
+     */
+    private static final class Route {
+        private final int[] points;
+        private final int[] roads;
+        private final int distance;
+        private final int deviation;
+
+        private Route(int[] points, int[] roads, int distance, int deviation) {
+            this.points = points;
+            this.roads = roads;
+            this.distance = distance;
+            this.deviation = deviation;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Route && Arrays.equals(roads, ((Route) o).roads);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(roads);
+        }
+    }
+
+    /**
+     * The arrays of the spur searches of one task at a time. Blocked points and roads, reached and settled points are
+     * marked with the number of the current search, so nothing has to be cleared between searches.
+     */
+    private final class SpurSearch {
+        private final RouteQueue queue = new RouteQueue(graph.getPointCount());
+        private final int[] distance = new int[graph.getPointCount()];
+        private final int[] reached = new int[graph.getPointCount()];
+        private final int[] settled = new int[graph.getPointCount()];
+        private final int[] blockedPoint = new int[graph.getPointCount()];
+        private final int[] blockedRoad = new int[graph.getRoadCount()];
+        private final int[] waitingParent = new int[graph.getPointCount()];
+        private final int[] waitingRoad = new int[graph.getPointCount()];
+        private int run;
+
+        /**
+         * Finds the shortest route that follows a route up to its i-th point and then leaves it.
+         *
+         * @param previous the route to leave
+         * @param i the index of the spur point on the route
+         * @param found the routes found so far; the roads they take from the same first i points are blocked
+         * @return the new route, or null if there is none
+         */
+        private Route spur(Route previous, int i, List<Route> found) {
+            run++;
+            int spurPoint = previous.points[i];
+            int rootDistance = 0;
+            for (int j = 0; j < i; j++) {
+                blockedPoint[previous.points[j]] = run;
+                rootDistance += graph.getRoadLength(previous.roads[j]);
+            }
+            for (Route route : found) {
+                if (route.roads.length > i && Arrays.equals(route.roads, 0, i, previous.roads, 0, i)) {
+                    blockedRoad[route.roads[i]] = run;
+                }
+            }
+
+            int[] spurRoads = findSpurRoute(spurPoint);
+            if (spurRoads == null) {
+                return null;
+            }
+
+            int[] points = Arrays.copyOf(previous.points, i + 1 + spurRoads.length);
+            int[] roads = Arrays.copyOf(previous.roads, i + spurRoads.length);
+            int distance = rootDistance;
+            for (int j = 0; j < spurRoads.length; j++) {
+                int road = spurRoads[j];
+                roads[i + j] = road;
+                points[i + j + 1] = graph.getRoadPoint1(road) == points[i + j] ? graph.getRoadPoint2(road) : graph.getRoadPoint1(road);
+                distance += graph.getRoadLength(road);
+            }
+            return new Route(points, roads, distance, i);
+        }
+
+        /**
+         * Finds the shortest spur route. Every route from the spur point starts with one of its roads and is at least as long
+         * as that road plus the distance of the end tree from the road's other point. If the end tree route from a neighbour
+         * with the smallest such sum is not blocked, that road and route are a shortest spur route and no search is needed;
+         * otherwise the shortest unblocked one of them is a limit for the search, which does not queue longer routes.
+         *
+         * @return the roads of the route, or null if there is no route
+         */
+        private int[] findSpurRoute(int spurPoint) {
+            int lowerBound = Integer.MAX_VALUE;
+            int bestArc = -1;
+            int bestLength = Integer.MAX_VALUE;
+            for (int arc = graph.getFirstArc(spurPoint); arc < graph.getFirstArc(spurPoint + 1); arc++) {
+                if (isOpen(arc, spurPoint)) {
+                    int length = graph.getArcLength(arc) + endTree.getDistance(graph.getNeighbor(arc));
+                    lowerBound = Math.min(lowerBound, length);
+                    if (length < bestLength && countTreeRoads(graph.getNeighbor(arc), spurPoint) != -1) {
+                        bestArc = arc;
+                        bestLength = length;
+                    }
+                }
+            }
+            if (bestArc != -1 && bestLength == lowerBound) {
+                return treeRoute(bestArc);
+            }
+            int[] roads = search(spurPoint, bestLength);
+            return roads == null && bestArc != -1 ? treeRoute(bestArc) : roads;
+        }
+
+        /**
+         * Returns the roads of a route that takes a road from the spur point and then follows the end tree.
+         */
+        private int[] treeRoute(int arc) {
+            int count = countTreeRoads(graph.getNeighbor(arc), -1);
+            int[] roads = new int[count + 1];
+            roads[0] = graph.getArcRoadIndex(arc);
+            int current = graph.getNeighbor(arc);
+            for (int j = 1; j <= count; j++) {
+                roads[j] = endTree.getParentRoad(current);
+                current = endTree.getParent(current);
+            }
+            return roads;
+        }
+
+        private boolean isOpen(int arc, int spurPoint) {
+            int neighbor = graph.getNeighbor(arc);
+            return neighbor != spurPoint && blockedRoad[graph.getArcRoadIndex(arc)] != run
+                    && blockedPoint[neighbor] != run && endTree.getDistance(neighbor) != -1;
+        }
+
+        /**
+         * Counts the roads of the end tree route from a point, if none of its points and roads is blocked and it does not pass the spur point.
+         *
+         * @return the number of roads, or -1 if the route is blocked
+         */
+        private int countTreeRoads(int point, int spurPoint) {
+            int count = 0;
+            for (int current = point; current != target; current = endTree.getParent(current)) {
+                int next = endTree.getParent(current);
+                if (blockedRoad[endTree.getParentRoad(current)] == run || blockedPoint[next] == run || next == spurPoint) {
+                    return -1;
+                }
+                count++;
+            }
+            return count;
+        }
+
+        /**
+         * Runs an A* search from a point to the end point without the blocked points and roads.
+         * The distances of the end tree are exact on the whole graph, so they never overestimate the distances left.
+         *
+         * @param source the spur point
+         * @param limit the length of a known spur route; routes that would be longer than it are not queued
+         * @return the roads of the route, or null if the end point cannot be reached within the limit
+         */
+        private int[] search(int source, int limit) {
+            queue.clear();
+            distance[source] = 0;
+            reached[source] = run;
+            queue.offer(source, endTree.getDistance(source), 0, 0);
+            boolean found = false;
+            while (!queue.isEmpty()) {
+                int current = queue.poll();
+                settled[current] = run;
+                if (current == target) {
+                    found = true;
+                    break;
+                }
+                for (int arc = graph.getFirstArc(current); arc < graph.getFirstArc(current + 1); arc++) {
+                    int neighbor = graph.getNeighbor(arc);
+                    int road = graph.getArcRoadIndex(arc);
+                    if (blockedRoad[road] == run || blockedPoint[neighbor] == run || settled[neighbor] == run) {
+                        continue;
+                    }
+                    int newDistance = distance[current] + graph.getArcLength(arc);
+                    int estimate = endTree.getDistance(neighbor);
+                    if (estimate == -1 || (long) newDistance + estimate > limit) {
+                        continue;
+                    }
+                    if (reached[neighbor] != run || newDistance < distance[neighbor]) {
+                        reached[neighbor] = run;
+                        distance[neighbor] = newDistance;
+                        waitingParent[neighbor] = current;
+                        waitingRoad[neighbor] = road;
+                        // Among equal estimates the point farther from the spur point comes first, which is closer to the end point.
+                        queue.offer(neighbor, newDistance + estimate, -newDistance, 0);
+                    }
+                }
+            }
+            if (!found) {
+                return null;
+            }
+            int count = 0;
+            for (int current = target; current != source; current = waitingParent[current]) {
+                count++;
+            }
+            int[] roads = new int[count];
+            for (int current = target, j = count - 1; current != source; current = waitingParent[current], j--) {
+                roads[j] = waitingRoad[current];
+            }
+            return roads;
+        }
+    }
+}
@@ -0,0 +1,729 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * A contraction hierarchy over a list of roads, for answering many fastest route queries on a map that rarely changes.
+ * Preprocessing contracts the points one by one in order of importance and adds a shortcut between two neighbours of
+ * a contracted point whenever the route through that point is the only fastest one between them. A query then only
+ * searches upward in that order from both ends, which settles only a small part of the map.
+ * The hierarchy can be saved and loaded with all its edges, so it is only built once for a map.
+ * Routes are found on the original roads the way PointToPointSearch finds them: the fastest route algorithm explained
+ * in pdf runs from the start point, but only along roads whose end is still on a route of the fastest distance, which
+ * the hierarchy tells from the upward edges of that end and one upward search from the end point. So the returned
+ * roads are the same ones ShortestPathTree would return, including the priority and road id tie-breaking, while only
+ * the points of the fastest routes, their neighbours and the points above them in the hierarchy are looked at.
+ * Shortcuts are never unpacked, since the roads they stand for may tie with other roads that come first in that order.
+ * A distance alone only needs the two upward searches of getDistance.
+ * A hierarchy keeps its query arrays between queries; it is not safe to share one between threads.
+ */
+public class ContractionHierarchy {
+    private static final int MAGIC = 0x43484732;
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+    private static final int SIMULATED_WITNESS_SETTLE_LIMIT = 50;
+
+    private final String[] points;
+    private final Map<String, Integer> pointIds;
+    private final Road[] roads;
+    private final int[] rank;
+    private final int[] edgeFrom;
+    private final int[] edgeTo;
+    private final int[] edgeLength;
+    private final int[] edgeRoad;
+    private final int[] upOffsets;
+    private final int[] upEdges;
+    private final int[] roadOffsets;
+    private final int[] roadEdges;
+
+    private final RouteQueue forwardQueue;
+    private final RouteQueue backwardQueue;
+    private final int[] forwardDistance;
+    private final int[] backwardDistance;
+    private final int[] forwardReached;
+    private final int[] backwardReached;
+    private final RouteQueue routeQueue;
+    private final int[] routeSettled;
+    private final int[] waitingParent;
+    private final int[] waitingEdge;
+    private final int[] targetKnown;
+    private final int[] targetDistance;
+    private int[] targetStack = new int[16];
+    private int run;
+    private int targetRun;
+    private int routeRun;
+    private int settledCount;
+
+    private ContractionHierarchy(String[] points, Road[] roads, int[] rank, int edgeCount, int[] edgeFrom, int[] edgeTo,
+                                 int[] edgeLength, int[] edgeRoad) {
+        this.points = points;
+        this.roads = roads;
+        this.rank = rank;
+        this.edgeFrom = Arrays.copyOf(edgeFrom, edgeCount);
+        this.edgeTo = Arrays.copyOf(edgeTo, edgeCount);
+        this.edgeLength = Arrays.copyOf(edgeLength, edgeCount);
+        this.edgeRoad = Arrays.copyOf(edgeRoad, edgeCount);
+        this.pointIds = new HashMap<>();
+        for (int i = 0; i < points.length; i++) {
+            pointIds.put(points[i], i);
+        }
+
+        upOffsets = new int[points.length + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            upOffsets[lowerEnd(e) + 1]++;
+        }
+        for (int i = 0; i < points.length; i++) {
+            upOffsets[i + 1] += upOffsets[i];
+        }
+        upEdges = new int[edgeCount];
+        int[] next = Arrays.copyOf(upOffsets, points.length);
+        for (int e = 0; e < edgeCount; e++) {
+            upEdges[next[lowerEnd(e)]++] = e;
+        }
+
+        roadOffsets = new int[points.length + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            if (this.edgeRoad[e] != -1) {
+                roadOffsets[this.edgeFrom[e] + 1]++;
+                roadOffsets[this.edgeTo[e] + 1]++;
+            }
+        }
+        for (int i = 0; i < points.length; i++) {
+            roadOffsets[i + 1] += roadOffsets[i];
+        }
+        // The roads of a point are kept in the order of the road list, like the arcs of a RoadGraph, so roads with the
+        // same length and id are offered in the same order as by the fastest route algorithm.
+        int[] roadEdge = new int[roads.length];
+        Arrays.fill(roadEdge, -1);
+        for (int e = 0; e < edgeCount; e++) {
+            if (this.edgeRoad[e] != -1) {
+                roadEdge[this.edgeRoad[e]] = e;
+            }
+        }
+        roadEdges = new int[roadOffsets[points.length]];
+        next = Arrays.copyOf(roadOffsets, points.length);
+        for (int e : roadEdge) {
+            if (e != -1) {
+                roadEdges[next[this.edgeFrom[e]]++] = e;
+                roadEdges[next[this.edgeTo[e]]++] = e;
+            }
+        }
+
+        forwardQueue = new RouteQueue(points.length);
+        backwardQueue = new RouteQueue(points.length);
+        forwardDistance = new int[points.length];
+        backwardDistance = new int[points.length];
+        forwardReached = new int[points.length];
+        backwardReached = new int[points.length];
+        routeQueue = new RouteQueue(points.length);
+        routeSettled = new int[points.length];
+        waitingParent = new int[points.length];
+        waitingEdge = new int[points.length];
+        targetKnown = new int[points.length];
+        targetDistance = new int[points.length];
+    }
+
+    private int lowerEnd(int edge) {
+        return rank[edgeFrom[edge]] < rank[edgeTo[edge]] ? edgeFrom[edge] : edgeTo[edge];
+    }
+
+    private int otherEnd(int edge, int point) {
+        return edgeFrom[edge] == point ? edgeTo[edge] : edgeFrom[edge];
+    }
+
+    /**
+     * Builds the contraction hierarchy of a road graph. Between two points only the road with the smallest length and id is kept,
+     * which is the road the fastest route algorithm would take between them.
+     *
+     * @param graph the graph of the roads
+     * @return the built hierarchy
+     */
+    public static ContractionHierarchy build(RoadGraph graph) {
+        return new Builder(graph).build();
+    }
+
+    /**
+     * Writes the hierarchy to a file. The file holds the point names, the roads, the contraction order and all edges.
+     *
+     * @param path the path of the file
+     * @throws IOException if the file cannot be written
+     */
+    public void save(String path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(points.length);
+            for (String point : points) {
+                out.writeUTF(point);
+            }
+            out.writeInt(roads.length);
+            for (Road road : roads) {
+                out.writeInt(pointIds.get(road.getPoint1()));
+                out.writeInt(pointIds.get(road.getPoint2()));
+                out.writeInt(road.getLength());
+                out.writeInt(road.getId());
+            }
+            for (int r : rank) {
+                out.writeInt(r);
+            }
+            out.writeInt(edgeFrom.length);
+            for (int e = 0; e < edgeFrom.length; e++) {
+                out.writeInt(edgeFrom[e]);
+                out.writeInt(edgeTo[e]);
+                out.writeInt(edgeLength[e]);
+                out.writeInt(edgeRoad[e]);
+            }
+        }
+    }
+
+    /**
+     * Reads a hierarchy written by save.
+     *
+     * @param path the path of the file
+     * @return the read hierarchy
+     * @throws IOException if the file cannot be read or is not a hierarchy file
+     */
+    public static ContractionHierarchy load(String path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a contraction hierarchy file: " + path);
+            }
+            String[] points = new String[in.readInt()];
+            for (int i = 0; i < points.length; i++) {
+                points[i] = in.readUTF();
+            }
+            Road[] roads = new Road[in.readInt()];
+            for (int i = 0; i < roads.length; i++) {
+                roads[i] = new Road(points[in.readInt()], points[in.readInt()], in.readInt(), in.readInt());
+            }
+            int[] rank = new int[points.length];
+            for (int i = 0; i < rank.length; i++) {
+                rank[i] = in.readInt();
+            }
+            int edgeCount = in.readInt();
+            int[][] edges = new int[4][edgeCount];
+            for (int e = 0; e < edgeCount; e++) {
+                for (int field = 0; field < 4; field++) {
+                    edges[field][e] = in.readInt();
+                }
+            }
+            return new ContractionHierarchy(points, roads, rank, edgeCount, edges[0], edges[1], edges[2], edges[3]);
+        }
+    }
+
+    /**
+     * Calculates the distance of the fastest route between two points.
+     *
+     * @param start the start point of the route
+     * @param end the end point of the route
+     * @return the distance in kilometers, or -1 if there is no route
+     */
+    public int getDistance(String start, String end) {
+        if (start.equals(end)) {
+            return 0;
+        }
+        int meeting = search(start, end);
+        return meeting == -1 ? -1 : forwardDistance[meeting] + backwardDistance[meeting];
+    }
+
+    /**
+     * Retrieves the fastest route between two points on the original roads.
+     * If no route exists, returns an empty list.
+     * The fastest route algorithm runs from the start point and settles points in the same order as a full run,
+     * but a road is only followed when the hierarchy shows that its end is still on a fastest route to the end point,
+     * so it stops after settling the points of the fastest routes.
+     *
+     * @param start the start point of the route
+     * @param end the end point of the route
+     * @return a list of Roads representing the fastest route from start to end
+     */
+    public List<Road> getRoute(String start, String end) {
+        List<Road> route = new ArrayList<>();
+        Integer source = pointIds.get(start);
+        Integer target = pointIds.get(end);
+        if (start.equals(end) || source == null || target == null) {
+            return route;
+        }
+        settledCount = 0;
+        searchTargetSpace(target);
+        int distance = distanceToTarget(source);
+        if (distance == Integer.MAX_VALUE) {
+            return route;
+        }
+
+        routeRun++;
+        routeQueue.clear();
+        routeSettled[source] = routeRun;
+        int current = source;
+        int currentDistance = 0;
+        int i = 0;
+        while (current != target) {
+            for (int j = roadOffsets[current]; j < roadOffsets[current + 1]; j++) {
+                int edge = roadEdges[j];
+                int neighbor = otherEnd(edge, current);
+                if (routeSettled[neighbor] == routeRun) {
+                    continue;
+                }
+                int newDistance = currentDistance + edgeLength[edge];
+                if ((long) newDistance + distanceToTarget(neighbor) > distance) {
+                    continue;
+                }
+                if (routeQueue.offer(neighbor, newDistance, i, roads[edgeRoad[edge]].getId())) {
+                    waitingParent[neighbor] = current;
+                    waitingEdge[neighbor] = edge;
+                }
+            }
+            if (routeQueue.isEmpty()) {
+                return route;
+            }
+            current = routeQueue.poll();
+            currentDistance = routeQueue.getDistance(current);
+            routeSettled[current] = routeRun;
+            settledCount++;
+            i++;
+        }
+
+        while (current != source) {
+            route.add(roads[edgeRoad[waitingEdge[current]]]);
+            current = waitingParent[current];
+        }
+        Collections.reverse(route);
+        return route;
+    }
+
+    /**
+     * Runs the whole upward search from the end point of a route query, whose distances distanceToTarget meets.
+     */
+    private void searchTargetSpace(int target) {
+        run++;
+        targetRun = run;
+        backwardQueue.clear();
+        reach(backwardQueue, backwardDistance, backwardReached, target, 0);
+        while (!backwardQueue.isEmpty()) {
+            int current = backwardQueue.poll();
+            settledCount++;
+            relaxUpward(backwardQueue, backwardDistance, backwardReached, current);
+        }
+    }
+
+    /**
+     * Returns the distance from a point to the end point of the current route query.
+     * Every route of the hierarchy goes up from the point and then down to the end point, and the way down is what the
+     * upward search of searchTargetSpace found, so the distance of a point is the smaller of its distance in that search
+     * and the shortest upward edge plus the distance of the point that edge leads to. The distances are filled in from
+     * the highest points down and kept for the rest of the query, so the upward edges of the points around a route are
+     * walked only once, however many of their neighbours ask.
+     *
+     * @param point the id of the point
+     * @return the distance, or Integer.MAX_VALUE if there is no route
+     */
+    private int distanceToTarget(int point) {
+        if (targetKnown[point] == targetRun) {
+            return targetDistance[point];
+        }
+        int size = 0;
+        targetStack[size++] = point;
+        while (size > 0) {
+            int current = targetStack[size - 1];
+            if (current >= 0) {
+                if (targetKnown[current] == targetRun) {
+                    size--;
+                    continue;
+                }
+                targetStack[size - 1] = ~current; // Filled in once the points above it are.
+                for (int i = upOffsets[current]; i < upOffsets[current + 1]; i++) {
+                    int neighbor = otherEnd(upEdges[i], current);
+                    if (targetKnown[neighbor] != targetRun) {
+                        if (size == targetStack.length) {
+                            targetStack = Arrays.copyOf(targetStack, size * 2);
+                        }
+                        targetStack[size++] = neighbor;
+                    }
+                }
+                continue;
+            }
+            current = ~current;
+            size--;
+            long best = backwardReached[current] == targetRun ? backwardDistance[current] : Integer.MAX_VALUE;
+            for (int i = upOffsets[current]; i < upOffsets[current + 1]; i++) {
+                int edge = upEdges[i];
+                best = Math.min(best, (long) edgeLength[edge] + targetDistance[otherEnd(edge, current)]);
+            }
+            targetDistance[current] = (int) Math.min(best, Integer.MAX_VALUE);
+            targetKnown[current] = targetRun;
+            settledCount++;
+        }
+        return targetDistance[point];
+    }
+
+    private void relaxUpward(RouteQueue queue, int[] distance, int[] reached, int current) {
+        for (int i = upOffsets[current]; i < upOffsets[current + 1]; i++) {
+            int edge = upEdges[i];
+            int neighbor = otherEnd(edge, current);
+            int newDistance = distance[current] + edgeLength[edge];
+            if (reached[neighbor] != run || newDistance < distance[neighbor]) {
+                reach(queue, distance, reached, neighbor, newDistance);
+            }
+        }
+    }
+
+    /**
+     * Runs the upward searches from both ends.
+     *
+     * @return the point where the fastest route meets, or -1 if there is no route
+     */
+    private int search(String start, String end) {
+        Integer source = pointIds.get(start);
+        Integer target = pointIds.get(end);
+        if (source == null || target == null) {
+            return -1;
+        }
+        run++;
+        settledCount = 0;
+        forwardQueue.clear();
+        backwardQueue.clear();
+        reach(forwardQueue, forwardDistance, forwardReached, source, 0);
+        reach(backwardQueue, backwardDistance, backwardReached, target, 0);
+
+        long best = Long.MAX_VALUE;
+        int meeting = -1;
+        while (true) {
+            boolean forward = !forwardQueue.isEmpty() && forwardQueue.getDistance(forwardQueue.peek()) < best;
+            boolean backward = !backwardQueue.isEmpty() && backwardQueue.getDistance(backwardQueue.peek()) < best;
+            if (!forward && !backward) {
+                break;
+            }
+            if (forward && backward) {
+                forward = forwardQueue.getDistance(forwardQueue.peek()) <= backwardQueue.getDistance(backwardQueue.peek());
+            }
+            RouteQueue queue = forward ? forwardQueue : backwardQueue;
+            int[] distance = forward ? forwardDistance : backwardDistance;
+            int[] reached = forward ? forwardReached : backwardReached;
+            int[] otherDistance = forward ? backwardDistance : forwardDistance;
+            int[] otherReached = forward ? backwardReached : forwardReached;
+
+            int current = queue.poll();
+            settledCount++;
+            if (otherReached[current] == run && (long) distance[current] + otherDistance[current] < best) {
+                best = (long) distance[current] + otherDistance[current];
+                meeting = current;
+            }
+            relaxUpward(queue, distance, reached, current);
+        }
+        return meeting;
+    }
+
+    private void reach(RouteQueue queue, int[] distance, int[] reached, int point, int newDistance) {
+        distance[point] = newDistance;
+        reached[point] = run;
+        queue.offer(point, newDistance, 0, 0);
+    }
+
+    /**
+     * Returns the number of points settled by the last query, over all of its searches.
+     *
+     * @return the number of settled points
+     */
+    public int getSettledCount() {
+        return settledCount;
+    }
+
+    public int getPointCount() {
+        return points.length;
+    }
+
+    public int getEdgeCount() {
+        return edgeFrom.length;
+    }
+
+    /**
+     * Contracts the points of a graph and collects the edges of the hierarchy.
+     */
+    private static final class Builder {
+        private final RoadGraph graph;
+        private final int pointCount;
+        private int[][] adjacency;
+        private int[] degree;
+        private boolean[] contracted;
+        private int[] deletedNeighbors;
+        private int edgeCount;
+        private int[] edgeFrom = new int[16];
+        private int[] edgeTo = new int[16];
+        private int[] edgeLength = new int[16];
+        private int[] edgeRoad = new int[16];
+
+        private final RouteQueue witnessQueue;
+        private final int[] witnessDistance;
+        private final int[] witnessReached;
+        private final int[] neighborEdge;
+        private final int[] neighborSeen;
+        private int witnessRun;
+        private int neighborRun;
+
+        private Builder(RoadGraph graph) {
+            this.graph = graph;
+            this.pointCount = graph.getPointCount();
+            adjacency = new int[pointCount][];
+            degree = new int[pointCount];
+            contracted = new boolean[pointCount];
+            deletedNeighbors = new int[pointCount];
+            witnessQueue = new RouteQueue(pointCount);
+            witnessDistance = new int[pointCount];
+            witnessReached = new int[pointCount];
+            neighborEdge = new int[pointCount];
+            neighborSeen = new int[pointCount];
+            for (int i = 0; i < pointCount; i++) {
+                adjacency[i] = new int[4];
+            }
+        }
+
+        private ContractionHierarchy build() {
+            addOriginalRoads();
+
+            PriorityQueue<Long> order = new PriorityQueue<>();
+            int[] priorities = new int[pointCount];
+            for (int point = 0; point < pointCount; point++) {
+                priorities[point] = priority(point);
+                order.add(entry(priorities[point], point));
+            }
+            int[] rank = new int[pointCount];
+            int nextRank = 0;
+            while (!order.isEmpty()) {
+                long top = order.poll();
+                int point = (int) (top & 0xFFFFFFFFL);
+                if (contracted[point] || (int) (top >> 32) != priorities[point]) {
+                    continue;
+                }
+                priorities[point] = priority(point);
+                if (!order.isEmpty() && entry(priorities[point], point) > order.peek()) {
+                    order.add(entry(priorities[point], point));
+                    continue;
+                }
+                int[] neighbors = contract(point, false);
+                contracted[point] = true;
+                rank[point] = nextRank++;
+                for (int neighbor : neighbors) {
+                    unlinkContracted(neighbor);
+                    priorities[neighbor] = priority(neighbor);
+                    order.add(entry(priorities[neighbor], neighbor));
+                }
+            }
+
+            String[] points = new String[pointCount];
+            for (int i = 0; i < pointCount; i++) {
+                points[i] = graph.getPointName(i);
+            }
+            Road[] roads = new Road[graph.getRoadCount()];
+            for (int i = 0; i < roads.length; i++) {
+                roads[i] = graph.getRoad(i);
+            }
+            return new ContractionHierarchy(points, roads, rank, edgeCount, edgeFrom, edgeTo, edgeLength, edgeRoad);
+        }
+
+        private static long entry(int priority, int point) {
+            return ((long) priority << 32) | point;
+        }
+
+        /**
+         * Adds one edge for every pair of neighbouring points, using the road with the smallest length and id between them.
+         */
+        private void addOriginalRoads() {
+            for (int point = 0; point < pointCount; point++) {
+                neighborRun++;
+                for (int arc = graph.getFirstArc(point); arc < graph.getFirstArc(point + 1); arc++) {
+                    int neighbor = graph.getNeighbor(arc);
+                    if (neighbor <= point) {
+                        continue;
+                    }
+                    if (neighborSeen[neighbor] != neighborRun) {
+                        neighborSeen[neighbor] = neighborRun;
+                        neighborEdge[neighbor] = addEdge(point, neighbor, graph.getArcLength(arc), graph.getArcRoadIndex(arc));
+                    } else {
+                        int edge = neighborEdge[neighbor];
+                        if (graph.getArcLength(arc) < edgeLength[edge]
+                                || (graph.getArcLength(arc) == edgeLength[edge] && graph.getArcRoadId(arc) < graph.getRoadId(edgeRoad[edge]))) {
+                            edgeLength[edge] = graph.getArcLength(arc);
+                            edgeRoad[edge] = graph.getArcRoadIndex(arc);
+                        }
+                    }
+                }
+            }
+        }
+
+        private int addEdge(int from, int to, int length, int road) {
+            if (edgeCount == edgeFrom.length) {
+                int capacity = edgeCount * 2;
+                edgeFrom = Arrays.copyOf(edgeFrom, capacity);
+                edgeTo = Arrays.copyOf(edgeTo, capacity);
+                edgeLength = Arrays.copyOf(edgeLength, capacity);
+                edgeRoad = Arrays.copyOf(edgeRoad, capacity);
+            }
+            int edge = edgeCount++;
+            edgeFrom[edge] = from;
+            edgeTo[edge] = to;
+            edgeLength[edge] = length;
+            edgeRoad[edge] = road;
+            link(from, edge);
+            link(to, edge);
+            return edge;
+        }
+
+        private void link(int point, int edge) {
+            if (degree[point] == adjacency[point].length) {
+                adjacency[point] = Arrays.copyOf(adjacency[point], degree[point] * 2);
+            }
+            adjacency[point][degree[point]++] = edge;
+        }
+
+        /**
+         * Removes the edges to contracted points from the adjacency of a point, so later searches do not walk them.
+         */
+        private void unlinkContracted(int point) {
+            int kept = 0;
+            for (int i = 0; i < degree[point]; i++) {
+                int edge = adjacency[point][i];
+                if (!contracted[other(edge, point)]) {
+                    adjacency[point][kept++] = edge;
+                }
+            }
+            degree[point] = kept;
+        }
+
+        /**
+         * Removes the edges between two points that are longer than a shortcut about to be added between them.
+         * The edges stay in the hierarchy, since the original roads among them are still walked by getRoute.
+         */
+        private void unlinkLonger(int point1, int point2, int length) {
+            int kept = 0;
+            for (int i = 0; i < degree[point1]; i++) {
+                int edge = adjacency[point1][i];
+                if (other(edge, point1) == point2 && edgeLength[edge] > length) {
+                    unlink(point2, edge);
+                } else {
+                    adjacency[point1][kept++] = edge;
+                }
+            }
+            degree[point1] = kept;
+        }
+
+        private void unlink(int point, int edge) {
+            for (int i = 0; i < degree[point]; i++) {
+                if (adjacency[point][i] == edge) {
+                    adjacency[point][i] = adjacency[point][--degree[point]];
+                    return;
+                }
+            }
+        }
+
+        private int other(int edge, int point) {
+            return edgeFrom[edge] == point ? edgeTo[edge] : edgeFrom[edge];
+        }
+
+        /**
+         * The importance of a point: shortcuts its contraction would add, minus the edges it would remove, plus its contracted neighbours.
+         */
+        private int priority(int point) {
+            int[] result = contract(point, true);
+            return result[0] - result[1] + deletedNeighbors[point];
+        }
+
+        /**
+         * Contracts a point, or only counts what its contraction would do.
+         * Counting uses a smaller witness search limit than contracting, since it is done far more often.
+         *
+         * @return when counting, the number of shortcuts and the number of remaining neighbours; otherwise the remaining neighbours
+         */
+        private int[] contract(int point, boolean simulate) {
+            neighborRun++;
+            int[] neighbors = new int[degree[point]];
+            int neighborCount = 0;
+            for (int i = 0; i < degree[point]; i++) {
+                int edge = adjacency[point][i];
+                int neighbor = other(edge, point);
+                if (contracted[neighbor] || neighbor == point) {
+                    continue;
+                }
+                if (neighborSeen[neighbor] != neighborRun) {
+                    neighborSeen[neighbor] = neighborRun;
+                    neighborEdge[neighbor] = edge;
+                    neighbors[neighborCount++] = neighbor;
+                } else if (edgeLength[edge] < edgeLength[neighborEdge[neighbor]]) {
+                    neighborEdge[neighbor] = edge;
+                }
+            }
+            int[] edges = new int[neighborCount];
+            for (int i = 0; i < neighborCount; i++) {
+                edges[i] = neighborEdge[neighbors[i]];
+            }
+
+            int shortcuts = 0;
+            for (int i = 0; i < neighborCount; i++) {
+                int limit = 0;
+                for (int j = i + 1; j < neighborCount; j++) {
+                    limit = Math.max(limit, edgeLength[edges[i]] + edgeLength[edges[j]]);
+                }
+                if (i + 1 < neighborCount) {
+                    searchWitnesses(neighbors[i], point, limit, simulate ? SIMULATED_WITNESS_SETTLE_LIMIT : WITNESS_SETTLE_LIMIT);
+                }
+                for (int j = i + 1; j < neighborCount; j++) {
+                    int length = edgeLength[edges[i]] + edgeLength[edges[j]];
+                    if (witnessReached[neighbors[j]] == witnessRun && witnessDistance[neighbors[j]] <= length) {
+                        continue;
+                    }
+                    shortcuts++;
+                    if (!simulate) {
+                        unlinkLonger(neighbors[i], neighbors[j], length);
+                        addEdge(neighbors[i], neighbors[j], length, -1);
+                    }
+                }
+            }
+            if (simulate) {
+                return new int[]{shortcuts, neighborCount};
+            }
+            for (int i = 0; i < neighborCount; i++) {
+                deletedNeighbors[neighbors[i]]++;
+            }
+            return Arrays.copyOf(neighbors, neighborCount);
+        }
+
+        /**
+         * Searches routes from a point that avoid the contracted point, up to the given distance and a limited number of settled points.
+         */
+        private void searchWitnesses(int source, int avoided, int limit, int settleLimit) {
+            witnessRun++;
+            witnessQueue.clear();
+            witnessDistance[source] = 0;
+            witnessReached[source] = witnessRun;
+            witnessQueue.offer(source, 0, 0, 0);
+            int settled = 0;
+            while (!witnessQueue.isEmpty() && settled++ < settleLimit) {
+                int current = witnessQueue.poll();
+                if (witnessDistance[current] > limit) {
+                    break;
+                }
+                for (int i = 0; i < degree[current]; i++) {
+                    int edge = adjacency[current][i];
+                    int neighbor = other(edge, current);
+                    if (contracted[neighbor] || neighbor == avoided) {
+                        continue;
+                    }
+                    int newDistance = witnessDistance[current] + edgeLength[edge];
+                    if (witnessReached[neighbor] != witnessRun || newDistance < witnessDistance[neighbor]) {
+                        witnessDistance[neighbor] = newDistance;
+                        witnessReached[neighbor] = witnessRun;
+                        witnessQueue.offer(neighbor, newDistance, 0, 0);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * A disjoint set of points identified by dense integer ids, used by the barely connected map algorithm to ensure no cycles are formed.
+ * Finding a root halves the path it walks, and union attaches the root of lower rank under the other one.
+ */
+public class DisjointSet {
+    private final int[] parent;
+    private final byte[] rank;
+
+    /**
+     * Constructs a disjoint set where every point is in its own subset.
+     *
+     * @param size the number of points.
+     */
+    public DisjointSet(int size) {
+        parent = new int[size];
+        rank = new byte[size];
+        for (int i = 0; i < size; i++) {
+            parent[i] = i;
+        }
+    }
+
+    /**
+     * Finds the root of the subset of a point.
+     *
+     * @param point the id of the point
+     * @return the id of the root point
+     */
+    public int find(int point) {
+        while (parent[point] != point) {
+            parent[point] = parent[parent[point]];
+            point = parent[point];
+        }
+        return point;
+    }
+
+    /**
+     * Unites two subsets into one subset.
+     *
+     * @param root1 the root of first subset
+     * @param root2 the root of second subset
+     */
+    public void union(int root1, int root2) {
+        if (rank[root1] < rank[root2]) {
+            parent[root1] = root2;
+        } else if (rank[root1] > rank[root2]) {
+            parent[root2] = root1;
+        } else {
+            parent[root1] = root2;
+            rank[root2]++;
+        }
+    }
+}
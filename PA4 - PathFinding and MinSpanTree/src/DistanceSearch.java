@@ -0,0 +1,48 @@
+import java.util.Arrays;
+
+/**
+ * Calculates the distances from one point to every other point of a RoadGraph.
+ * Only distances are calculated, so the order in which routes of equal distance are settled does not matter here.
+ * A search keeps its queue between calculations; it is not safe to share one between threads, but any number of searches may share a graph.
+ */
+public class DistanceSearch {
+    private final RoadGraph graph;
+    private final RouteQueue routeQueue;
+
+    /**
+     * Constructs a search over the given graph.
+     *
+     * @param graph the graph of the roads.
+     */
+    public DistanceSearch(RoadGraph graph) {
+        this.graph = graph;
+        this.routeQueue = new RouteQueue(graph.getPointCount());
+    }
+
+    /**
+     * Calculates the distance from a point to every point of the graph.
+     *
+     * @param source the id of the starting point
+     * @param distance the array the distances are written to, indexed by point id; unreachable points get -1
+     */
+    public void calculate(int source, int[] distance) {
+        Arrays.fill(distance, -1);
+        routeQueue.clear();
+        routeQueue.offer(source, 0, 0, 0);
+        while (!routeQueue.isEmpty()) {
+            int current = routeQueue.poll();
+            int currentDistance = routeQueue.getDistance(current);
+            distance[current] = currentDistance;
+            for (int arc = graph.getFirstArc(current); arc < graph.getFirstArc(current + 1); arc++) {
+                int neighbor = graph.getNeighbor(arc);
+                if (distance[neighbor] == -1) {
+                    routeQueue.offer(neighbor, currentDistance + graph.getArcLength(arc), 0, 0);
+                }
+            }
+        }
+    }
+
+    public RoadGraph getGraph() {
+        return graph;
+    }
+}
@@ -0,0 +1,428 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Keeps the barely connected map of a changing list of roads up to date without recalculating it from scratch.
+ * The roads of the map are kept in a link-cut tree, which finds the longest road on the map route between two points
+ * in logarithmic amortized time. A new road joins the map if it connects two parts of it, or if it is shorter than the
+ * longest road on the route between its points, which then leaves the map, so adding a road takes logarithmic amortized
+ * time. Removing a road that is not on the map is just as cheap. Removing a road that is on the map walks the map from
+ * both of its points at the same pace until the smaller of the two parts is found, and reconnects them with the
+ * shortest road leaving that part, so it takes time linear in the points and roads of the smaller part. That is often
+ * small, but it is linear in the number of roads in the worst case, for example when a road near the middle of a long
+ * chain is removed.
+ * Roads are ordered by length, then id, then the order they were added, so the map is always the one the barely
+ * connected map algorithm explained in pdf would build from the same list, with its roads in the same order.
+ */
+public class DynamicBarelyConnectedMap {
+    private final Map<String, Integer> pointIds = new HashMap<>();
+    private final Map<Road, ArrayDeque<Integer>> roadIndexes = new IdentityHashMap<>(); // A road added twice has two indexes
+    private final Comparator<Integer> roadOrder = (road1, road2) -> compareRoads(road1, road2);
+    private final TreeSet<Integer> mapRoads = new TreeSet<>(roadOrder);
+
+    private Road[] roads = new Road[16];
+    private int[] roadPoint1 = new int[16];
+    private int[] roadPoint2 = new int[16];
+    private int[] roadNode = new int[16];
+    private boolean[] onMap = new boolean[16];
+    private int roadCount;
+
+    private int[][] pointRoads = new int[16][];
+    private int[] pointRoadCount = new int[16];
+    private int[] visited = new int[16];
+    private int[] queue1 = new int[16];
+    private int[] queue2 = new int[16];
+    private int visitStamp;
+
+    private int[] left = new int[16];
+    private int[] right = new int[16];
+    private int[] parent = new int[16];
+    private boolean[] reversed = new boolean[16];
+    private int[] nodeRoad = new int[16];
+    private int[] longest = new int[16];
+    private int[] splayStack = new int[16];
+    private int nodeCount;
+
+    private long totalLength;
+    private long mapLength;
+
+    /**
+     * Constructs the barely connected map of a list of roads from a map that is already calculated,
+     * which is much faster than adding the roads one by one.
+     *
+     * @param roads the list of roads, in the order the barely connected map algorithm would see them
+     * @param barelyConnectedMap the barely connected map of the roads, made of the same Road objects
+     */
+    public DynamicBarelyConnectedMap(List<Road> roads, List<Road> barelyConnectedMap) {
+        for (Road road : roads) {
+            newRoad(road);
+            totalLength += road.getLength();
+        }
+        for (Road road : barelyConnectedMap) {
+            linkRoad(roadIndexes.get(road).peekFirst()); // The first copy of a road comes first in the order of the map
+        }
+    }
+
+    /**
+     * Adds a road and updates the barely connected map.
+     *
+     * @param road the new road
+     */
+    public void addRoad(Road road) {
+        int index = newRoad(road);
+        totalLength += road.getLength();
+        int point1 = roadPoint1[index];
+        int point2 = roadPoint2[index];
+        if (point1 == point2) {
+            return;
+        }
+        if (findRoot(point1) != findRoot(point2)) {
+            linkRoad(index);
+            return;
+        }
+        int longestRoad = pathLongest(point1, point2);
+        if (compareRoads(index, longestRoad) < 0) {
+            cutRoad(longestRoad);
+            linkRoad(index);
+        }
+    }
+
+    /**
+     * Removes a road and updates the barely connected map.
+     * A road that was added more than once is removed once per call, its first copy first, like List.remove.
+     *
+     * @param road the removed road, the same object that was added
+     * @return true if the road was found and removed, false otherwise
+     */
+    public boolean removeRoad(Road road) {
+        ArrayDeque<Integer> indexes = roadIndexes.get(road);
+        if (indexes == null) {
+            return false;
+        }
+        int index = indexes.pollFirst();
+        if (indexes.isEmpty()) {
+            roadIndexes.remove(road);
+        }
+        totalLength -= road.getLength();
+        if (!onMap[index]) {
+            roads[index] = null;
+            return true;
+        }
+        cutRoad(index);
+        roads[index] = null;
+        int replacement = findReplacement(roadPoint1[index], roadPoint2[index]);
+        if (replacement != -1) {
+            linkRoad(replacement);
+        }
+        return true;
+    }
+
+    /**
+     * Finds the shortest road that connects the two parts of the map left after a map road between the given points is cut.
+     * Both parts are walked one point at a time until one of them is finished; only the roads of that smaller part are checked.
+     *
+     * @param point1 a point of the first part
+     * @param point2 a point of the second part
+     * @return the index of the shortest connecting road, or -1 if the two parts cannot be connected
+     */
+    private int findReplacement(int point1, int point2) {
+        visitStamp += 2;
+        int mark1 = visitStamp;
+        int mark2 = visitStamp + 1;
+        visited[point1] = mark1;
+        visited[point2] = mark2;
+        queue1[0] = point1;
+        queue2[0] = point2;
+        int head1 = 0, tail1 = 1, head2 = 0, tail2 = 1;
+        while (head1 < tail1 && head2 < tail2) {
+            tail1 = visitNext(queue1[head1++], mark1, queue1, tail1);
+            tail2 = visitNext(queue2[head2++], mark2, queue2, tail2);
+        }
+        int[] part = head1 == tail1 ? queue1 : queue2;
+        int partMark = head1 == tail1 ? mark1 : mark2;
+        int partSize = head1 == tail1 ? tail1 : tail2;
+
+        int best = -1;
+        for (int i = 0; i < partSize; i++) {
+            int point = part[i];
+            for (int j = 0; j < pointRoadCount[point]; j++) {
+                int road = pointRoads[point][j];
+                if (!onMap[road] && visited[otherPoint(road, point)] != partMark
+                        && (best == -1 || compareRoads(road, best) < 0)) {
+                    best = road;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Adds the unvisited neighbours of a point on the map to a walk, dropping the removed roads of the point on the way.
+     *
+     * @return the new end of the queue of the walk
+     */
+    private int visitNext(int point, int mark, int[] queue, int tail) {
+        int[] incident = pointRoads[point];
+        int count = 0;
+        for (int j = 0; j < pointRoadCount[point]; j++) {
+            int road = incident[j];
+            if (roads[road] == null) {
+                continue;
+            }
+            incident[count++] = road;
+            int neighbor = otherPoint(road, point);
+            if (onMap[road] && visited[neighbor] != mark) {
+                visited[neighbor] = mark;
+                queue[tail++] = neighbor;
+            }
+        }
+        pointRoadCount[point] = count;
+        return tail;
+    }
+
+    private int otherPoint(int road, int point) {
+        return roadPoint1[road] == point ? roadPoint2[road] : roadPoint1[road];
+    }
+
+    /**
+     * Returns the roads of the barely connected map, ordered by length and id.
+     *
+     * @return a list of Roads that forms the barely connected map
+     */
+    public List<Road> getRoads() {
+        List<Road> barelyConnectedMap = new ArrayList<>(mapRoads.size());
+        for (int index : mapRoads) {
+            barelyConnectedMap.add(roads[index]);
+        }
+        return barelyConnectedMap;
+    }
+
+    /**
+     * Returns the ratio of the total length of the barely connected map to the total length of all roads.
+     *
+     * @return the construction material ratio
+     */
+    public double getMaterialRatio() {
+        return (double) mapLength / totalLength;
+    }
+
+    private int compareRoads(int road1, int road2) {
+        int lengthCompare = Integer.compare(roads[road1].getLength(), roads[road2].getLength());
+        if (lengthCompare != 0) return lengthCompare;
+        int idCompare = Integer.compare(roads[road1].getId(), roads[road2].getId());
+        if (idCompare != 0) return idCompare;
+        return Integer.compare(road1, road2);
+    }
+
+    private int newRoad(Road road) {
+        if (roadCount == roads.length) {
+            int capacity = roadCount * 2;
+            roads = Arrays.copyOf(roads, capacity);
+            roadPoint1 = Arrays.copyOf(roadPoint1, capacity);
+            roadPoint2 = Arrays.copyOf(roadPoint2, capacity);
+            roadNode = Arrays.copyOf(roadNode, capacity);
+            onMap = Arrays.copyOf(onMap, capacity);
+        }
+        int index = roadCount++;
+        roads[index] = road;
+        roadPoint1[index] = pointNode(road.getPoint1());
+        roadPoint2[index] = pointNode(road.getPoint2());
+        roadNode[index] = newNode(index);
+        roadIndexes.computeIfAbsent(road, key -> new ArrayDeque<>()).addLast(index);
+        addPointRoad(roadPoint1[index], index);
+        if (roadPoint2[index] != roadPoint1[index]) {
+            addPointRoad(roadPoint2[index], index);
+        }
+        return index;
+    }
+
+    private void addPointRoad(int point, int road) {
+        int[] incident = pointRoads[point];
+        if (incident == null) {
+            incident = new int[4];
+        } else if (pointRoadCount[point] == incident.length) {
+            incident = Arrays.copyOf(incident, incident.length * 2);
+        }
+        incident[pointRoadCount[point]++] = road;
+        pointRoads[point] = incident;
+    }
+
+    private int pointNode(String point) {
+        Integer node = pointIds.get(point);
+        if (node == null) {
+            node = newNode(-1);
+            pointIds.put(point, node);
+        }
+        return node;
+    }
+
+    private void linkRoad(int index) {
+        link(roadPoint1[index], roadNode[index]);
+        link(roadNode[index], roadPoint2[index]);
+        onMap[index] = true;
+        mapRoads.add(index);
+        mapLength += roads[index].getLength();
+    }
+
+    private void cutRoad(int index) {
+        cut(roadPoint1[index], roadNode[index]);
+        cut(roadNode[index], roadPoint2[index]);
+        onMap[index] = false;
+        mapRoads.remove(index);
+        mapLength -= roads[index].getLength();
+    }
+
+    // Link-cut tree over point nodes and road nodes; every road node carries its road, and longest[] holds
+    // the node of the longest road in a splay subtree.
+
+    private int newNode(int road) {
+        if (nodeCount == left.length) {
+            int capacity = nodeCount * 2;
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            parent = Arrays.copyOf(parent, capacity);
+            reversed = Arrays.copyOf(reversed, capacity);
+            nodeRoad = Arrays.copyOf(nodeRoad, capacity);
+            longest = Arrays.copyOf(longest, capacity);
+            splayStack = Arrays.copyOf(splayStack, capacity);
+            pointRoads = Arrays.copyOf(pointRoads, capacity);
+            pointRoadCount = Arrays.copyOf(pointRoadCount, capacity);
+            visited = Arrays.copyOf(visited, capacity);
+            queue1 = Arrays.copyOf(queue1, capacity);
+            queue2 = Arrays.copyOf(queue2, capacity);
+        }
+        int node = nodeCount++;
+        left[node] = -1;
+        right[node] = -1;
+        parent[node] = -1;
+        nodeRoad[node] = road;
+        longest[node] = road == -1 ? -1 : node;
+        return node;
+    }
+
+    private boolean isSplayRoot(int node) {
+        int p = parent[node];
+        return p == -1 || (left[p] != node && right[p] != node);
+    }
+
+    private void push(int node) {
+        if (reversed[node]) {
+            int child = left[node];
+            left[node] = right[node];
+            right[node] = child;
+            if (left[node] != -1) reversed[left[node]] ^= true;
+            if (right[node] != -1) reversed[right[node]] ^= true;
+            reversed[node] = false;
+        }
+    }
+
+    private int longer(int node1, int node2) {
+        if (node1 == -1) return node2;
+        if (node2 == -1) return node1;
+        return compareRoads(nodeRoad[node1], nodeRoad[node2]) >= 0 ? node1 : node2;
+    }
+
+    private void update(int node) {
+        int result = nodeRoad[node] == -1 ? -1 : node;
+        if (left[node] != -1) result = longer(result, longest[left[node]]);
+        if (right[node] != -1) result = longer(result, longest[right[node]]);
+        longest[node] = result;
+    }
+
+    private void rotate(int node) {
+        int p = parent[node];
+        int grandparent = parent[p];
+        if (!isSplayRoot(p)) {
+            if (left[grandparent] == p) left[grandparent] = node;
+            else right[grandparent] = node;
+        }
+        parent[node] = grandparent;
+        if (left[p] == node) {
+            left[p] = right[node];
+            if (right[node] != -1) parent[right[node]] = p;
+            right[node] = p;
+        } else {
+            right[p] = left[node];
+            if (left[node] != -1) parent[left[node]] = p;
+            left[node] = p;
+        }
+        parent[p] = node;
+        update(p);
+        update(node);
+    }
+
+    private void splay(int node) {
+        int size = 0;
+        splayStack[size++] = node;
+        for (int current = node; !isSplayRoot(current); current = parent[current]) {
+            splayStack[size++] = parent[current];
+        }
+        while (size > 0) {
+            push(splayStack[--size]);
+        }
+        while (!isSplayRoot(node)) {
+            int p = parent[node];
+            if (!isSplayRoot(p)) {
+                int grandparent = parent[p];
+                boolean zigZig = (left[grandparent] == p) == (left[p] == node);
+                rotate(zigZig ? p : node);
+            }
+            rotate(node);
+        }
+    }
+
+    private void access(int node) {
+        int last = -1;
+        for (int current = node; current != -1; current = parent[current]) {
+            splay(current);
+            right[current] = last;
+            update(current);
+            last = current;
+        }
+        splay(node);
+    }
+
+    private void makeRoot(int node) {
+        access(node);
+        reversed[node] ^= true;
+        push(node);
+    }
+
+    private int findRoot(int node) {
+        access(node);
+        int root = node;
+        push(root);
+        while (left[root] != -1) {
+            root = left[root];
+            push(root);
+        }
+        splay(root);
+        return root;
+    }
+
+    private void link(int node1, int node2) {
+        makeRoot(node1);
+        parent[node1] = node2;
+    }
+
+    private void cut(int node1, int node2) {
+        makeRoot(node1);
+        access(node2);
+        left[node2] = -1;
+        parent[node1] = -1;
+        update(node2);
+    }
+
+    private int pathLongest(int point1, int point2) {
+        makeRoot(point1);
+        access(point2);
+        return nodeRoad[longest[point2]];
+    }
+}
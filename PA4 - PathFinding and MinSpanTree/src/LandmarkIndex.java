@@ -0,0 +1,91 @@
+import java.util.Arrays;
+
+/**
+ * Precomputed distances from a few landmark points to every point of a RoadGraph.
+ * By the triangle inequality, |d(L, a) - d(L, b)| is never more than the distance between a and b for any landmark L,
+ * which gives a lower bound on the remaining distance of a route that goal directed searches can use.
+ * Landmarks are picked one by one as the point farthest from the landmarks picked so far.
+ */
+public class LandmarkIndex {
+    private final RoadGraph graph;
+    private final int[] landmarks;
+    private final int[][] distances;
+
+    /**
+     * Picks landmarks on the given graph and calculates their distances.
+     *
+     * @param graph the graph of the roads.
+     * @param count the number of landmarks to pick, at most the number of points.
+     */
+    public LandmarkIndex(RoadGraph graph, int count) {
+        this.graph = graph;
+        int pointCount = graph.getPointCount();
+        count = Math.min(count, pointCount);
+        this.landmarks = new int[count];
+        this.distances = new int[count][pointCount];
+
+        DistanceSearch search = new DistanceSearch(graph);
+        int[] closest = new int[pointCount];
+        Arrays.fill(closest, -1);
+        int next = 0;
+        if (count > 0) {
+            search.calculate(0, closest);
+            next = farthest(closest);
+            Arrays.fill(closest, -1);
+        }
+        for (int i = 0; i < count; i++) {
+            landmarks[i] = next;
+            search.calculate(next, distances[i]);
+            for (int point = 0; point < pointCount; point++) {
+                int distance = distances[i][point];
+                if (distance != -1 && (closest[point] == -1 || distance < closest[point])) {
+                    closest[point] = distance;
+                }
+            }
+            next = farthest(closest);
+        }
+    }
+
+    /**
+     * Returns the point with the greatest distance, counting unreachable points as the farthest ones.
+     */
+    private static int farthest(int[] distance) {
+        int farthest = 0;
+        for (int point = 1; point < distance.length; point++) {
+            if (distance[farthest] != -1 && (distance[point] == -1 || distance[point] > distance[farthest])) {
+                farthest = point;
+            }
+        }
+        return farthest;
+    }
+
+    /**
+     * Returns a lower bound on the distance between two points.
+     *
+     * @param point1 the id of the first point
+     * @param point2 the id of the second point
+     * @return a lower bound on the distance, or -1 if the points are known to be unreachable from each other
+     */
+    public int getLowerBound(int point1, int point2) {
+        int bound = 0;
+        for (int[] distance : distances) {
+            int distance1 = distance[point1];
+            int distance2 = distance[point2];
+            if ((distance1 == -1) != (distance2 == -1)) {
+                return -1;
+            }
+            if (distance1 != -1) {
+                bound = Math.max(bound, Math.abs(distance1 - distance2));
+            }
+        }
+        return bound;
+    }
+
+    public RoadGraph getGraph() {
+        return graph;
+    }
+
+    public int getLandmarkCount() {
+        return landmarks.length;
+    }
+}
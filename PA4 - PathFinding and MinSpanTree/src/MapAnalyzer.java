@@ -8,18 +8,52 @@ public class MapAnalyzer {
      * The main method sets the default locale to US, reads the input and output file paths from command-line arguments,
      * and triggers the route processing through the RouteManager class.
      *
+     * When a query file is given, every start/end pair in it is answered on the roads of the input file instead.
+     * With "-ch input hierarchy" the contraction hierarchy of the input file is built and written to the hierarchy file,
+     * and with "-chquery hierarchy queries output" the queries are answered with a hierarchy built before.
+     * With "-convert input graph" the roads of the input file are written to a binary graph file, which the query and
+     * hierarchy modes accept in place of a text input file.
+     * With "-alternatives k input output" the k shortest routes between the start and end points of the input file are written.
+     * With "-matrix input hubs output" the distances between every pair of points in the hub file are written as a CSV matrix.
+     *
      * @param args Command-line arguments containing the paths to the input and output files.
      *             args[0] should be the input file path.
-     *             args[1] should be the output file path.
+     *             args[1] should be the output file path, or the query file path when three arguments are given.
+     *             args[2] is optional and should be the output file path of the query mode.
      */
     public static void main(String[] args) {
 
         Locale.setDefault(Locale.US);
 
+        RouteManager routeManager = new RouteManager();
+        if (args[0].equals("-convert")) {
+            routeManager.convertRoads(args[1], args[2]);
+            return;
+        }
+        if (args[0].equals("-alternatives")) {
+            routeManager.processAlternativeRoutes(args[2], Integer.parseInt(args[1]), args[3]);
+            return;
+        }
+        if (args[0].equals("-matrix")) {
+            routeManager.processDistanceMatrix(args[1], args[2], args[3]);
+            return;
+        }
+        if (args[0].equals("-ch")) {
+            routeManager.buildHierarchy(args[1], args[2]);
+            return;
+        }
+        if (args[0].equals("-chquery")) {
+            routeManager.processHierarchyQueries(args[1], args[2], args[3]);
+            return;
+        }
+        if (args.length >= 3) {
+            routeManager.processQueries(args[0], args[1], args[2]);
+            return;
+        }
+
         String inputFile = args[0];
         String outputFile = args[1];
 
-        RouteManager routeManager = new RouteManager();
         routeManager.processRoutes(inputFile, outputFile);
     }
 }
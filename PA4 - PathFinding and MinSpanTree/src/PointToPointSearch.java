@@ -0,0 +1,252 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Finds the fastest route between two points of a RoadGraph without settling the whole graph.
+ * The search runs in two phases. First, the distance of the route is found either by a bidirectional search
+ * or, when a LandmarkIndex is given, by an A* search that uses the landmark lower bounds (ALT).
+ * Then the fastest route algorithm explained in pdf is run from the start point, but only along roads whose
+ * end can still be on a route of that distance, and it stops as soon as the end point is settled.
+ * Points that can be on such a route are settled in the same order as in a full run, so the returned roads
+ * are the same ones ShortestPathTree would return, including the priority and road id tie-breaking.
+ * A search keeps its arrays between queries; it is not safe to share one between threads.
+ */
+public class PointToPointSearch {
+    private final RoadGraph graph;
+    private final LandmarkIndex landmarks;
+    private final RouteQueue forwardQueue;
+    private final RouteQueue backwardQueue;
+    private final int[] forwardDistance;
+    private final int[] backwardDistance;
+    private final int[] forwardReached;
+    private final int[] backwardReached;
+    private final int[] forwardSettled;
+    private final int[] backwardSettled;
+    private final int[] waitingParent;
+    private final int[] waitingRoad;
+    private int forwardRun;
+    private int backwardRun;
+    private int backwardBound;
+    private int settledCount;
+
+    /**
+     * Constructs a search that finds distances with a bidirectional search.
+     *
+     * @param graph the graph of the roads.
+     */
+    public PointToPointSearch(RoadGraph graph) {
+        this(graph, null);
+    }
+
+    /**
+     * Constructs a search that finds distances with an A* search guided by the given landmarks.
+     *
+     * @param graph the graph of the roads.
+     * @param landmarks the landmarks of the same graph, or null to use a bidirectional search.
+     */
+    public PointToPointSearch(RoadGraph graph, LandmarkIndex landmarks) {
+        this.graph = graph;
+        this.landmarks = landmarks;
+        int pointCount = graph.getPointCount();
+        forwardQueue = new RouteQueue(pointCount);
+        backwardQueue = new RouteQueue(pointCount);
+        forwardDistance = new int[pointCount];
+        backwardDistance = new int[pointCount];
+        forwardReached = new int[pointCount];
+        backwardReached = new int[pointCount];
+        forwardSettled = new int[pointCount];
+        backwardSettled = new int[pointCount];
+        waitingParent = new int[pointCount];
+        waitingRoad = new int[pointCount];
+    }
+
+    /**
+     * Calculates the distance of the fastest route between two points.
+     *
+     * @param start the start point of the route
+     * @param end the end point of the route
+     * @return the distance in kilometers, or -1 if there is no route
+     */
+    public int getDistance(String start, String end) {
+        settledCount = 0;
+        int source = graph.getPointId(start);
+        int target = graph.getPointId(end);
+        if (source == -1 || target == -1) {
+            return start.equals(end) ? 0 : -1;
+        }
+        if (source == target) {
+            return 0; // The bidirectional search only meets over a road, so a route without roads is answered here.
+        }
+        return landmarks == null ? searchBidirectional(source, target) : searchWithLandmarks(source, target);
+    }
+
+    /**
+     * Retrieves the fastest route between two points.
+     * If no route exists, returns an empty list.
+     *
+     * @param start the start point of the route
+     * @param end the end point of the route
+     * @return a list of Roads representing the shortest route from start to end
+     */
+    public List<Road> getRoute(String start, String end) {
+        int distance = getDistance(start, end);
+        List<Road> route = new ArrayList<>();
+        if (distance == -1 || start.equals(end)) {
+            return route;
+        }
+        int source = graph.getPointId(start);
+        int target = graph.getPointId(end);
+
+        forwardRun++;
+        forwardQueue.clear();
+        forwardSettled[source] = forwardRun;
+        int current = source;
+        int currentDistance = 0;
+        int i = 0;
+        while (current != target) {
+            for (int arc = graph.getFirstArc(current); arc < graph.getFirstArc(current + 1); arc++) {
+                int neighbor = graph.getNeighbor(arc);
+                if (forwardSettled[neighbor] == forwardRun) {
+                    continue;
+                }
+                int newDistance = currentDistance + graph.getArcLength(arc);
+                int bound = getLowerBound(neighbor, target);
+                if (bound == -1 || (long) newDistance + bound > distance) {
+                    continue;
+                }
+                if (forwardQueue.offer(neighbor, newDistance, i, graph.getArcRoadId(arc))) {
+                    waitingParent[neighbor] = current;
+                    waitingRoad[neighbor] = graph.getArcRoadIndex(arc);
+                }
+            }
+            if (forwardQueue.isEmpty()) {
+                return route;
+            }
+            current = forwardQueue.poll();
+            currentDistance = forwardQueue.getDistance(current);
+            forwardSettled[current] = forwardRun;
+            settledCount++;
+            i++;
+        }
+
+        while (current != source) {
+            route.add(graph.getRoad(waitingRoad[current]));
+            current = waitingParent[current];
+        }
+        Collections.reverse(route);
+        return route;
+    }
+
+    /**
+     * Returns the number of points settled by the last query, over all of its phases.
+     *
+     * @return the number of settled points
+     */
+    public int getSettledCount() {
+        return settledCount;
+    }
+
+    /**
+     * Returns a lower bound on the distance from a point to the target of the current query.
+     * With landmarks the landmark bound is used; otherwise the exact distance of points settled by the backward search,
+     * or the distance the backward search stopped at for the other points.
+     */
+    private int getLowerBound(int point, int target) {
+        if (landmarks != null) {
+            return landmarks.getLowerBound(point, target);
+        }
+        return backwardSettled[point] == backwardRun ? backwardDistance[point] : backwardBound;
+    }
+
+    private int searchBidirectional(int source, int target) {
+        forwardRun++;
+        backwardRun++;
+        forwardQueue.clear();
+        backwardQueue.clear();
+        reach(forwardQueue, forwardDistance, forwardReached, forwardRun, source, 0);
+        reach(backwardQueue, backwardDistance, backwardReached, backwardRun, target, 0);
+        long best = Long.MAX_VALUE;
+        while (!forwardQueue.isEmpty() && !backwardQueue.isEmpty()) {
+            int forwardTop = forwardQueue.getDistance(forwardQueue.peek());
+            int backwardTop = backwardQueue.getDistance(backwardQueue.peek());
+            if ((long) forwardTop + backwardTop >= best) {
+                break;
+            }
+            if (forwardTop <= backwardTop) {
+                best = Math.min(best, settle(forwardQueue, forwardDistance, forwardReached, forwardSettled, forwardRun,
+                        backwardDistance, backwardReached, backwardRun));
+            } else {
+                best = Math.min(best, settle(backwardQueue, backwardDistance, backwardReached, backwardSettled, backwardRun,
+                        forwardDistance, forwardReached, forwardRun));
+            }
+        }
+        backwardBound = backwardQueue.isEmpty() ? Integer.MAX_VALUE : backwardQueue.getDistance(backwardQueue.peek());
+        return best == Long.MAX_VALUE ? -1 : (int) best;
+    }
+
+    private void reach(RouteQueue queue, int[] distance, int[] reached, int run, int point, int newDistance) {
+        distance[point] = newDistance;
+        reached[point] = run;
+        queue.offer(point, newDistance, 0, 0);
+    }
+
+    /**
+     * Settles the first point of one side of the bidirectional search and relaxes its roads.
+     *
+     * @return the length of the shortest route found through a point reached by the other side, or Long.MAX_VALUE
+     */
+    private long settle(RouteQueue queue, int[] distance, int[] reached, int[] settled, int run,
+                        int[] otherDistance, int[] otherReached, int otherRun) {
+        long best = Long.MAX_VALUE;
+        int current = queue.poll();
+        settled[current] = run;
+        settledCount++;
+        for (int arc = graph.getFirstArc(current); arc < graph.getFirstArc(current + 1); arc++) {
+            int neighbor = graph.getNeighbor(arc);
+            int newDistance = distance[current] + graph.getArcLength(arc);
+            if (settled[neighbor] != run && (reached[neighbor] != run || newDistance < distance[neighbor])) {
+                reach(queue, distance, reached, run, neighbor, newDistance);
+            }
+            if (otherReached[neighbor] == otherRun) {
+                best = Math.min(best, (long) newDistance + otherDistance[neighbor]);
+            }
+        }
+        return best;
+    }
+
+    private int searchWithLandmarks(int source, int target) {
+        forwardRun++;
+        forwardQueue.clear();
+        forwardDistance[source] = 0;
+        forwardReached[source] = forwardRun;
+        forwardQueue.offer(source, landmarks.getLowerBound(source, target), 0, 0);
+        while (!forwardQueue.isEmpty()) {
+            int current = forwardQueue.poll();
+            forwardSettled[current] = forwardRun;
+            settledCount++;
+            if (current == target) {
+                return forwardDistance[target];
+            }
+            for (int arc = graph.getFirstArc(current); arc < graph.getFirstArc(current + 1); arc++) {
+                int neighbor = graph.getNeighbor(arc);
+                int newDistance = forwardDistance[current] + graph.getArcLength(arc);
+                if (forwardSettled[neighbor] == forwardRun
+                        || (forwardReached[neighbor] == forwardRun && newDistance >= forwardDistance[neighbor])) {
+                    continue;
+                }
+                int bound = landmarks.getLowerBound(neighbor, target);
+                if (bound != -1) {
+                    forwardDistance[neighbor] = newDistance;
+                    forwardReached[neighbor] = forwardRun;
+                    forwardQueue.offer(neighbor, newDistance + bound, 0, 0);
+                }
+            }
+        }
+        return -1;
+    }
+
+    public RoadGraph getGraph() {
+        return graph;
+    }
+}
@@ -0,0 +1,146 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Writes a report to a file through one channel that stays open until the report is closed.
+ * Text and roads are formatted into a reusable StringBuilder, which is encoded with the default charset into a reusable
+ * ByteBuffer and written to the channel whenever it fills up, so the file is written in large blocks instead of
+ * being opened and closed for every line like FileOutput does. The bytes are the same FileOutput would write.
+ */
+public class ReportWriter implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final CharsetEncoder encoder;
+    private final StringBuilder text = new StringBuilder(BUFFER_SIZE);
+    private final ByteBuffer bytes;
+
+    /**
+     * Opens a report file, replacing the file if it already exists.
+     *
+     * @param path the path of the report file
+     * @throws IOException if the file cannot be opened
+     */
+    public ReportWriter(String path) throws IOException {
+        channel = FileChannel.open(Paths.get(path),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        encoder = Charset.defaultCharset().newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        bytes = ByteBuffer.allocate((int) (BUFFER_SIZE * encoder.maxBytesPerChar()));
+    }
+
+    /**
+     * Writes a piece of text.
+     *
+     * @param content the text
+     * @return this writer
+     * @throws IOException if the file cannot be written
+     */
+    public ReportWriter write(String content) throws IOException {
+        text.append(content);
+        flushIfFull();
+        return this;
+    }
+
+    /**
+     * Writes a number.
+     *
+     * @param value the number
+     * @return this writer
+     * @throws IOException if the file cannot be written
+     */
+    public ReportWriter write(int value) throws IOException {
+        text.append(value);
+        flushIfFull();
+        return this;
+    }
+
+    /**
+     * Writes a road on its own line, in the same format as Road.toString.
+     *
+     * @param road the road
+     * @return this writer
+     * @throws IOException if the file cannot be written
+     */
+    public ReportWriter writeRoad(Road road) throws IOException {
+        text.append(road.getPoint1()).append('\t')
+                .append(road.getPoint2()).append('\t')
+                .append(road.getLength()).append('\t')
+                .append(road.getId()).append('\n');
+        flushIfFull();
+        return this;
+    }
+
+    /**
+     * Writes every road of a list on its own line.
+     *
+     * @param roads the roads
+     * @return this writer
+     * @throws IOException if the file cannot be written
+     */
+    public ReportWriter writeRoads(List<Road> roads) throws IOException {
+        for (Road road : roads) {
+            writeRoad(road);
+        }
+        return this;
+    }
+
+    /**
+     * Writes the rest of the report and closes the file.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            encode(true);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void flushIfFull() throws IOException {
+        if (text.length() >= BUFFER_SIZE) {
+            encode(false);
+        }
+    }
+
+    /**
+     * Encodes the formatted text and writes it to the channel.
+     * A character that cannot be encoded yet, like the first half of a surrogate pair, stays in the text until the next call.
+     *
+     * @param endOfInput true if no more text will be written
+     * @throws IOException if the file cannot be written
+     */
+    private void encode(boolean endOfInput) throws IOException {
+        CharBuffer chars = CharBuffer.wrap(text);
+        while (encoder.encode(chars, bytes, endOfInput).isOverflow()) {
+            writeBytes();
+        }
+        if (endOfInput) {
+            while (encoder.flush(bytes).isOverflow()) {
+                writeBytes();
+            }
+        }
+        writeBytes();
+        text.delete(0, chars.position());
+    }
+
+    private void writeBytes() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
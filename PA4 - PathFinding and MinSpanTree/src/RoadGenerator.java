@@ -0,0 +1,149 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic road maps for measuring the route algorithms.
+ * Every generator is seeded, so the same arguments always give the same roads, and every road gets a unique id
+ * in the order it is generated. Points are named "P" followed by their number.
+ */
+public class RoadGenerator {
+    private static final int MAX_LENGTH = 100;
+
+    /**
+     * Generates a grid of points where every point is connected to its right and lower neighbours.
+     * The grid is as close to square as possible and has about the given number of roads.
+     *
+     * @param roadCount the approximate number of roads
+     * @param seed the seed of the random road lengths
+     * @return the list of roads
+     */
+    public static List<Road> grid(int roadCount, long seed) {
+        Random random = new Random(seed);
+        int width = Math.max(2, (int) Math.sqrt(roadCount / 2.0));
+        int height = Math.max(2, roadCount / (2 * width));
+        List<Road> roads = new ArrayList<>(2 * width * height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int point = y * width + x;
+                if (x + 1 < width) {
+                    roads.add(new Road("P" + point, "P" + (point + 1), 1 + random.nextInt(MAX_LENGTH), roads.size() + 1));
+                }
+                if (y + 1 < height) {
+                    roads.add(new Road("P" + point, "P" + (point + width), 1 + random.nextInt(MAX_LENGTH), roads.size() + 1));
+                }
+            }
+        }
+        return roads;
+    }
+
+    /**
+     * Generates a random geometric map: points are scattered in a square and every pair of points closer than
+     * a radius is connected by a road as long as their distance. The radius is chosen so every point has
+     * about the given number of roads on average, which gives about points * degree / 2 roads.
+     *
+     * @param roadCount the approximate number of roads
+     * @param degree the average number of roads of a point
+     * @param seed the seed of the point positions
+     * @return the list of roads
+     */
+    public static List<Road> randomGeometric(int roadCount, int degree, long seed) {
+        Random random = new Random(seed);
+        int pointCount = Math.max(2, 2 * roadCount / degree);
+        double size = 1000.0 * Math.sqrt(pointCount);
+        double radius = Math.sqrt(degree * size * size / (Math.PI * pointCount));
+        int cells = Math.max(1, (int) (size / radius));
+        double cellSize = size / cells;
+
+        double[] x = new double[pointCount];
+        double[] y = new double[pointCount];
+        int[] cellStart = new int[cells * cells + 1];
+        int[] cellOf = new int[pointCount];
+        for (int i = 0; i < pointCount; i++) {
+            x[i] = random.nextDouble() * size;
+            y[i] = random.nextDouble() * size;
+            cellOf[i] = Math.min(cells - 1, (int) (y[i] / cellSize)) * cells + Math.min(cells - 1, (int) (x[i] / cellSize));
+            cellStart[cellOf[i] + 1]++;
+        }
+        for (int i = 0; i < cells * cells; i++) {
+            cellStart[i + 1] += cellStart[i];
+        }
+        int[] next = cellStart.clone();
+        int[] cellPoints = new int[pointCount];
+        for (int i = 0; i < pointCount; i++) {
+            cellPoints[next[cellOf[i]]++] = i;
+        }
+
+        List<Road> roads = new ArrayList<>();
+        for (int i = 0; i < pointCount; i++) {
+            int cellX = cellOf[i] % cells;
+            int cellY = cellOf[i] / cells;
+            for (int ny = Math.max(0, cellY - 1); ny <= Math.min(cells - 1, cellY + 1); ny++) {
+                for (int nx = Math.max(0, cellX - 1); nx <= Math.min(cells - 1, cellX + 1); nx++) {
+                    int cell = ny * cells + nx;
+                    for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                        int j = cellPoints[k];
+                        double distance = Math.hypot(x[i] - x[j], y[i] - y[j]);
+                        if (j > i && distance <= radius) {
+                            roads.add(new Road("P" + i, "P" + j, 1 + (int) distance, roads.size() + 1));
+                        }
+                    }
+                }
+            }
+        }
+        return roads;
+    }
+
+    /**
+     * Generates a scale-free map with the Barabasi-Albert model: every new point is connected to the given number
+     * of older points, picked with a chance proportional to the number of roads they already have.
+     *
+     * @param roadCount the approximate number of roads
+     * @param roadsPerPoint the number of roads every new point gets
+     * @param seed the seed of the picks and the road lengths
+     * @return the list of roads
+     */
+    public static List<Road> scaleFree(int roadCount, int roadsPerPoint, long seed) {
+        Random random = new Random(seed);
+        int pointCount = Math.max(roadsPerPoint + 1, roadCount / roadsPerPoint);
+        List<Road> roads = new ArrayList<>(pointCount * roadsPerPoint);
+        int[] ends = new int[2 * pointCount * roadsPerPoint];
+        int endCount = 0;
+        for (int i = 1; i <= roadsPerPoint; i++) {
+            roads.add(new Road("P0", "P" + i, 1 + random.nextInt(MAX_LENGTH), roads.size() + 1));
+            ends[endCount++] = 0;
+            ends[endCount++] = i;
+        }
+        for (int i = roadsPerPoint + 1; i < pointCount; i++) {
+            int firstEnd = endCount;
+            for (int k = 0; k < roadsPerPoint; k++) {
+                int target = ends[random.nextInt(firstEnd)];
+                roads.add(new Road("P" + i, "P" + target, 1 + random.nextInt(MAX_LENGTH), roads.size() + 1));
+                ends[endCount++] = i;
+                ends[endCount++] = target;
+            }
+        }
+        return roads;
+    }
+
+    /**
+     * Generates a map with one of the generators by name.
+     *
+     * @param name "grid", "geometric" or "scalefree"
+     * @param roadCount the approximate number of roads
+     * @param seed the seed of the generator
+     * @return the list of roads, or null if the name is not a generator
+     */
+    public static List<Road> generate(String name, int roadCount, long seed) {
+        switch (name) {
+            case "grid":
+                return grid(roadCount, seed);
+            case "geometric":
+                return randomGeometric(roadCount, 8, seed);
+            case "scalefree":
+                return scaleFree(roadCount, 4, seed);
+            default:
+                return null;
+        }
+    }
+}
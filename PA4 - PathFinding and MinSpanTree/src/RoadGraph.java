@@ -0,0 +1,188 @@
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Represents a list of roads as a graph in compressed sparse row form.
+ * Every point is interned to a dense integer id, and the roads leaving a point are stored next to each other
+ * in primitive arrays, so route algorithms can walk the neighbours of a point without comparing any strings.
+ * The roads leaving a point keep the order they have in the road list.
+ * The graph keeps the Road objects of the list, so getRoad returns the same objects. A graph read from a RoadGraphFile
+ * is a subclass that overrides every accessor to read the mapped file instead of these arrays.
+ */
+public class RoadGraph {
+    private final Road[] roads;
+    private final String[] points;
+    private final Map<String, Integer> pointIds;
+    private final int[] roadPoint1;
+    private final int[] roadPoint2;
+    private final int[] roadLengths;
+    private final int[] roadIds;
+    private final int[] offsets;
+    private final int[] neighbors;
+    private final int[] arcLengths;
+    private final int[] arcRoadIds;
+    private final int[] arcRoadIndexes;
+
+    /**
+     * Constructs the graph of the given roads.
+     *
+     * @param roads the list of roads.
+     */
+    public RoadGraph(List<Road> roads) {
+        this.roads = roads.toArray(new Road[0]);
+        this.pointIds = new HashMap<>();
+        this.roadPoint1 = new int[this.roads.length];
+        this.roadPoint2 = new int[this.roads.length];
+        this.roadLengths = new int[this.roads.length];
+        this.roadIds = new int[this.roads.length];
+        for (int i = 0; i < this.roads.length; i++) {
+            roadPoint1[i] = intern(this.roads[i].getPoint1());
+            roadPoint2[i] = intern(this.roads[i].getPoint2());
+            roadLengths[i] = this.roads[i].getLength();
+            roadIds[i] = this.roads[i].getId();
+        }
+        this.points = new String[pointIds.size()];
+        for (Map.Entry<String, Integer> entry : pointIds.entrySet()) {
+            points[entry.getValue()] = entry.getKey();
+        }
+
+        offsets = new int[points.length + 1];
+        for (int i = 0; i < this.roads.length; i++) {
+            offsets[roadPoint1[i] + 1]++;
+            if (roadPoint1[i] != roadPoint2[i]) {
+                offsets[roadPoint2[i] + 1]++;
+            }
+        }
+        for (int i = 0; i < points.length; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+
+        int arcCount = offsets[points.length];
+        neighbors = new int[arcCount];
+        arcLengths = new int[arcCount];
+        arcRoadIds = new int[arcCount];
+        arcRoadIndexes = new int[arcCount];
+        int[] next = new int[points.length];
+        System.arraycopy(offsets, 0, next, 0, points.length);
+        for (int i = 0; i < this.roads.length; i++) {
+            addArc(next[roadPoint1[i]]++, roadPoint2[i], i);
+            if (roadPoint1[i] != roadPoint2[i]) {
+                addArc(next[roadPoint2[i]]++, roadPoint1[i], i);
+            }
+        }
+    }
+
+    /**
+     * Constructs a graph without arrays, for a subclass that overrides every accessor, as RoadGraphFile does.
+     */
+    RoadGraph() {
+        this.roads = null;
+        this.points = null;
+        this.pointIds = null;
+        this.roadPoint1 = null;
+        this.roadPoint2 = null;
+        this.roadLengths = null;
+        this.roadIds = null;
+        this.offsets = null;
+        this.neighbors = null;
+        this.arcLengths = null;
+        this.arcRoadIds = null;
+        this.arcRoadIndexes = null;
+    }
+
+    private int intern(String point) {
+        Integer id = pointIds.get(point);
+        if (id == null) {
+            id = pointIds.size();
+            pointIds.put(point, id);
+        }
+        return id;
+    }
+
+    private void addArc(int arc, int neighbor, int roadIndex) {
+        neighbors[arc] = neighbor;
+        arcLengths[arc] = roadLengths[roadIndex];
+        arcRoadIds[arc] = roadIds[roadIndex];
+        arcRoadIndexes[arc] = roadIndex;
+    }
+
+    /**
+     * Returns the id of a point.
+     *
+     * @param point the name of the point
+     * @return the id of the point, or -1 if no road of the graph touches it
+     */
+    public int getPointId(String point) {
+        Integer id = pointIds.get(point);
+        return id == null ? -1 : id;
+    }
+
+    public String getPointName(int pointId) {
+        return points[pointId];
+    }
+
+    public int getPointCount() {
+        return points.length;
+    }
+
+    public int getRoadCount() {
+        return roads.length;
+    }
+
+    /**
+     * Returns a road of the graph.
+     *
+     * @param roadIndex the index of the road in the road list
+     * @return the road, the same object that is in the road list
+     */
+    public Road getRoad(int roadIndex) {
+        return roads[roadIndex];
+    }
+
+    public int getRoadLength(int roadIndex) {
+        return roadLengths[roadIndex];
+    }
+
+    public int getRoadId(int roadIndex) {
+        return roadIds[roadIndex];
+    }
+
+    public int getRoadPoint1(int roadIndex) {
+        return roadPoint1[roadIndex];
+    }
+
+    public int getRoadPoint2(int roadIndex) {
+        return roadPoint2[roadIndex];
+    }
+
+    /**
+     * Returns the first arc of a point; the arcs of a point are the ones from getFirstArc(point) to getFirstArc(point + 1), exclusive.
+     *
+     * @param pointId the id of the point
+     * @return the index of the first arc leaving the point
+     */
+    public int getFirstArc(int pointId) {
+        return offsets[pointId];
+    }
+
+    public int getNeighbor(int arc) {
+        return neighbors[arc];
+    }
+
+    public int getArcLength(int arc) {
+        return arcLengths[arc];
+    }
+
+    public int getArcRoadId(int arc) {
+        return arcRoadIds[arc];
+    }
+
+    public int getArcRoadIndex(int arc) {
+        return arcRoadIndexes[arc];
+    }
+
+    public int getArcCount() {
+        return neighbors.length;
+    }
+}
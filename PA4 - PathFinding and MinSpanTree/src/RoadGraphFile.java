@@ -0,0 +1,343 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads and writes RoadGraphs in a compact binary format, so large maps do not have to be parsed from text every time.
+ * The file starts with a header, followed by the point name table and the arrays of the graph:
+ * <pre>
+ * header     magic, version, point count, road count, arc count, unused, name table size (long)
+ * names      point count + 1 name offsets (long), the point ids in order of their names, then the UTF-8 bytes of all
+ *            names, padded to a multiple of 4
+ * roads      point1, point2, length and id of every road
+ * arcs       point count + 1 offsets, then the neighbour, length, road id and road index of every arc
+ * </pre>
+ * All numbers are big-endian ints unless noted. Reading maps the file with FileChannel.map, in chunks that stay below
+ * the size limit of a single mapping, and returns a graph that reads its arrays from the mapping, so only the pages a
+ * query touches are loaded. Names are decoded only when they are asked for, and a point is found by a binary search
+ * over the point ids in order of the bytes of their names.
+ */
+public class RoadGraphFile {
+    private static final int MAGIC = 0x52474631;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 32;
+    private static final int CHUNK_BITS = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+    /**
+     * Writes a graph to a file.
+     *
+     * @param graph the graph to write
+     * @param path the path of the file
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(RoadGraph graph, String path) throws IOException {
+        int pointCount = graph.getPointCount();
+        int roadCount = graph.getRoadCount();
+        int arcCount = graph.getArcCount();
+        byte[][] names = new byte[pointCount][];
+        long nameBytes = 0;
+        for (int i = 0; i < pointCount; i++) {
+            names[i] = graph.getPointName(i).getBytes(StandardCharsets.UTF_8);
+            nameBytes += names[i].length;
+        }
+        Integer[] nameOrder = new Integer[pointCount];
+        for (int i = 0; i < pointCount; i++) {
+            nameOrder[i] = i;
+        }
+        Arrays.sort(nameOrder, (a, b) -> Arrays.compareUnsigned(names[a], names[b]));
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(pointCount);
+            out.writeInt(roadCount);
+            out.writeInt(arcCount);
+            out.writeInt(0);
+            out.writeLong(nameBytes);
+
+            long offset = 0;
+            for (int i = 0; i < pointCount; i++) {
+                out.writeLong(offset);
+                offset += names[i].length;
+            }
+            out.writeLong(offset);
+            for (int id : nameOrder) {
+                out.writeInt(id);
+            }
+            for (byte[] name : names) {
+                out.write(name);
+            }
+            for (long i = nameBytes; i % 4 != 0; i++) {
+                out.writeByte(0);
+            }
+
+            for (int i = 0; i < roadCount; i++) {
+                out.writeInt(graph.getRoadPoint1(i));
+            }
+            for (int i = 0; i < roadCount; i++) {
+                out.writeInt(graph.getRoadPoint2(i));
+            }
+            for (int i = 0; i < roadCount; i++) {
+                out.writeInt(graph.getRoadLength(i));
+            }
+            for (int i = 0; i < roadCount; i++) {
+                out.writeInt(graph.getRoadId(i));
+            }
+
+            for (int i = 0; i <= pointCount; i++) {
+                out.writeInt(graph.getFirstArc(i));
+            }
+            for (int arc = 0; arc < arcCount; arc++) {
+                out.writeInt(graph.getNeighbor(arc));
+            }
+            for (int arc = 0; arc < arcCount; arc++) {
+                out.writeInt(graph.getArcLength(arc));
+            }
+            for (int arc = 0; arc < arcCount; arc++) {
+                out.writeInt(graph.getArcRoadId(arc));
+            }
+            for (int arc = 0; arc < arcCount; arc++) {
+                out.writeInt(graph.getArcRoadIndex(arc));
+            }
+        }
+    }
+
+    /**
+     * Reads a graph written by write. The graph keeps reading the mapped file, which stays valid after the file is closed.
+     *
+     * @param path the path of the file
+     * @return the read graph
+     * @throws IOException if the file cannot be read or is not a graph file
+     */
+    public static RoadGraph read(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer[] chunks = new ByteBuffer[(int) ((size + CHUNK_MASK) >>> CHUNK_BITS)];
+            for (int i = 0; i < chunks.length; i++) {
+                long position = (long) i << CHUNK_BITS;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(CHUNK_MASK + 1, size - position));
+            }
+            if (size < HEADER_SIZE || chunks[0].getInt(0) != MAGIC) {
+                throw new IOException("Not a road graph file: " + path);
+            }
+            if (chunks[0].getInt(4) != VERSION) {
+                throw new IOException("Unsupported road graph file version " + chunks[0].getInt(4) + ": " + path);
+            }
+            MappedRoadGraph graph = new MappedRoadGraph(chunks);
+            if (!graph.fits(size)) {
+                throw new IOException("Road graph file is truncated or corrupt: " + path);
+            }
+            return graph;
+        }
+    }
+
+    /**
+     * Checks whether a file starts like a graph file.
+     *
+     * @param path the path of the file
+     * @return true if the file is a graph file, false if it is not or cannot be read
+     */
+    public static boolean isGraphFile(String path) {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            return channel.read(magic, 0) == 4 && magic.getInt(0) == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * A graph whose arrays stay in the mapped file. The chunks all have the same size, a multiple of 8, and every
+     * section of ints or longs starts at a multiple of its size, so a number never crosses two chunks; only the bytes
+     * of a name can. Reads use absolute positions, so the graph can be shared between threads like a RoadGraph.
+     */
+    private static class MappedRoadGraph extends RoadGraph {
+        private final ByteBuffer[] chunks;
+        private final int pointCount;
+        private final int roadCount;
+        private final int arcCount;
+        private final long nameBytes;
+        private final long nameOffsets;
+        private final long nameOrder;
+        private final long names;
+        private final long roadPoint1;
+        private final long roadPoint2;
+        private final long roadLengths;
+        private final long roadIds;
+        private final long offsets;
+        private final long neighbors;
+        private final long arcLengths;
+        private final long arcRoadIds;
+        private final long arcRoadIndexes;
+        private final Map<Integer, Road> roads = new ConcurrentHashMap<>();
+
+        MappedRoadGraph(ByteBuffer[] chunks) {
+            this.chunks = chunks;
+            pointCount = chunks[0].getInt(8);
+            roadCount = chunks[0].getInt(12);
+            arcCount = chunks[0].getInt(16);
+            nameBytes = chunks[0].getLong(24);
+            nameOffsets = HEADER_SIZE;
+            nameOrder = nameOffsets + 8L * (pointCount + 1);
+            names = nameOrder + 4L * pointCount;
+            roadPoint1 = names + (nameBytes + 3) / 4 * 4;
+            roadPoint2 = roadPoint1 + 4L * roadCount;
+            roadLengths = roadPoint2 + 4L * roadCount;
+            roadIds = roadLengths + 4L * roadCount;
+            offsets = roadIds + 4L * roadCount;
+            neighbors = offsets + 4L * (pointCount + 1);
+            arcLengths = neighbors + 4L * arcCount;
+            arcRoadIds = arcLengths + 4L * arcCount;
+            arcRoadIndexes = arcRoadIds + 4L * arcCount;
+        }
+
+        /**
+         * Checks that the counts of the header describe a file of the given size, and that the name and arc offset
+         * tables end where the header says, so a truncated or corrupt file is noticed before any query reads it.
+         */
+        private boolean fits(long size) {
+            if (pointCount < 0 || roadCount < 0 || arcCount < 0 || nameBytes < 0 || nameBytes > size) {
+                return false;
+            }
+            return arcRoadIndexes + 4L * arcCount == size
+                    && getLong(nameOffsets, 0) == 0 && getLong(nameOffsets, pointCount) == nameBytes
+                    && getFirstArc(0) == 0 && getFirstArc(pointCount) == arcCount;
+        }
+
+        private int getInt(long section, int index) {
+            long position = section + 4L * index;
+            return chunks[(int) (position >>> CHUNK_BITS)].getInt((int) (position & CHUNK_MASK));
+        }
+
+        private long getLong(long section, int index) {
+            long position = section + 8L * index;
+            return chunks[(int) (position >>> CHUNK_BITS)].getLong((int) (position & CHUNK_MASK));
+        }
+
+        private byte getByte(long position) {
+            return chunks[(int) (position >>> CHUNK_BITS)].get((int) (position & CHUNK_MASK));
+        }
+
+        /**
+         * Compares the UTF-8 bytes of a name with the name of a point, byte by byte as unsigned numbers like write sorts them.
+         */
+        private int compareName(byte[] name, int pointId) {
+            long start = names + getLong(nameOffsets, pointId);
+            int length = (int) (getLong(nameOffsets, pointId + 1) - getLong(nameOffsets, pointId));
+            for (int i = 0; i < Math.min(name.length, length); i++) {
+                int difference = (name[i] & 0xFF) - (getByte(start + i) & 0xFF);
+                if (difference != 0) {
+                    return difference;
+                }
+            }
+            return name.length - length;
+        }
+
+        @Override
+        public int getPointId(String point) {
+            byte[] name = point.getBytes(StandardCharsets.UTF_8);
+            int low = 0;
+            int high = pointCount - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int pointId = getInt(nameOrder, middle);
+                int comparison = compareName(name, pointId);
+                if (comparison == 0) {
+                    return pointId;
+                }
+                if (comparison < 0) {
+                    high = middle - 1;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public String getPointName(int pointId) {
+            long start = names + getLong(nameOffsets, pointId);
+            byte[] name = new byte[(int) (getLong(nameOffsets, pointId + 1) - getLong(nameOffsets, pointId))];
+            for (int i = 0; i < name.length; i++) {
+                name[i] = getByte(start + i);
+            }
+            return new String(name, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int getPointCount() {
+            return pointCount;
+        }
+
+        @Override
+        public int getRoadCount() {
+            return roadCount;
+        }
+
+        @Override
+        public Road getRoad(int roadIndex) {
+            return roads.computeIfAbsent(roadIndex, index -> new Road(getPointName(getRoadPoint1(index)),
+                    getPointName(getRoadPoint2(index)), getRoadLength(index), getRoadId(index)));
+        }
+
+        @Override
+        public int getRoadLength(int roadIndex) {
+            return getInt(roadLengths, roadIndex);
+        }
+
+        @Override
+        public int getRoadId(int roadIndex) {
+            return getInt(roadIds, roadIndex);
+        }
+
+        @Override
+        public int getRoadPoint1(int roadIndex) {
+            return getInt(roadPoint1, roadIndex);
+        }
+
+        @Override
+        public int getRoadPoint2(int roadIndex) {
+            return getInt(roadPoint2, roadIndex);
+        }
+
+        @Override
+        public int getFirstArc(int pointId) {
+            return getInt(offsets, pointId);
+        }
+
+        @Override
+        public int getNeighbor(int arc) {
+            return getInt(neighbors, arc);
+        }
+
+        @Override
+        public int getArcLength(int arc) {
+            return getInt(arcLengths, arc);
+        }
+
+        @Override
+        public int getArcRoadId(int arc) {
+            return getInt(arcRoadIds, arc);
+        }
+
+        @Override
+        public int getArcRoadIndex(int arc) {
+            return getInt(arcRoadIndexes, arc);
+        }
+
+        @Override
+        public int getArcCount() {
+            return arcCount;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+import java.util.Arrays;
+
+/**
+ * Packs every road of a graph into a primitive long key, so roads can be sorted without boxing or comparators.
+ * Keys are ordered by road length, then road id, then the position of the road in the road list.
+ */
+public class RoadKeys {
+    private final long[] keys;
+    private final int[] roadIndexes;
+
+    /**
+     * Builds the keys of the roads of a graph. The keys are stored in road list order.
+     *
+     * @param graph the graph of the roads.
+     */
+    public RoadKeys(RoadGraph graph) {
+        int roadCount = graph.getRoadCount();
+        long[] idKeys = new long[roadCount];
+        for (int i = 0; i < roadCount; i++) {
+            idKeys[i] = ((long) graph.getRoadId(i) << 32) | i;
+        }
+        Arrays.parallelSort(idKeys);
+
+        roadIndexes = new int[roadCount];
+        int[] idRanks = new int[roadCount];
+        for (int rank = 0; rank < roadCount; rank++) {
+            int roadIndex = (int) idKeys[rank];
+            roadIndexes[rank] = roadIndex;
+            idRanks[roadIndex] = rank;
+        }
+        keys = new long[roadCount];
+        for (int i = 0; i < roadCount; i++) {
+            keys[i] = ((long) graph.getRoadLength(i) << 32) | idRanks[i];
+        }
+    }
+
+    /**
+     * Returns the keys of the roads. The returned array belongs to this object and may be reordered by the caller.
+     *
+     * @return the keys of the roads
+     */
+    public long[] getKeys() {
+        return keys;
+    }
+
+    /**
+     * Returns the index of the road a key belongs to.
+     *
+     * @param key the key of the road
+     * @return the index of the road in the road list
+     */
+    public int getRoadIndex(long key) {
+        return roadIndexes[(int) key];
+    }
+}
@@ -0,0 +1,199 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Measures the RoutePlanner operations on maps made by RoadGenerator and appends the results to a CSV file,
+ * so runs on different commits can be compared line by line.
+ * Every operation is run a number of warmup times first so the JIT compiler has settled, then measured a number of times;
+ * the CSV gets the mean, minimum and maximum time of the measured runs in milliseconds.
+ *
+ * Usage: java RouteBenchmark [-label name] [-sizes 1000,10000] [-generators grid,geometric,scalefree]
+ * [-warmup 3] [-iterations 5] [-seed 42] [-out benchmark.csv]
+ */
+public class RouteBenchmark {
+    private static final String HEADER = "label,generator,roads,points,benchmark,iterations,mean_ms,min_ms,max_ms\n";
+
+    private String label = "local";
+    private int[] sizes = {1000, 10000, 100000, 1000000};
+    private String[] generators = {"grid", "geometric", "scalefree"};
+    private int warmup = 3;
+    private int iterations = 5;
+    private long seed = 42;
+    private String outputFile = "benchmark.csv";
+    private long sink;
+
+    public static void main(String[] args) {
+        RouteBenchmark benchmark = new RouteBenchmark();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-label":
+                    benchmark.label = args[i + 1];
+                    break;
+                case "-sizes":
+                    benchmark.sizes = Arrays.stream(args[i + 1].split(",")).mapToInt(Integer::parseInt).toArray();
+                    break;
+                case "-generators":
+                    benchmark.generators = args[i + 1].split(",");
+                    break;
+                case "-warmup":
+                    benchmark.warmup = Integer.parseInt(args[i + 1]);
+                    break;
+                case "-iterations":
+                    benchmark.iterations = Integer.parseInt(args[i + 1]);
+                    break;
+                case "-seed":
+                    benchmark.seed = Long.parseLong(args[i + 1]);
+                    break;
+                case "-out":
+                    benchmark.outputFile = args[i + 1];
+                    break;
+                default:
+                    System.out.println("Unknown option " + args[i]);
+                    return;
+            }
+        }
+        benchmark.run();
+    }
+
+    /**
+     * Runs every benchmark on every generator and size.
+     */
+    public void run() {
+        if (!new File(outputFile).exists()) {
+            FileOutput.writeToFile(outputFile, HEADER, false, false);
+        }
+        for (String generator : generators) {
+            for (int size : sizes) {
+                List<Road> roads = RoadGenerator.generate(generator, size, seed);
+                if (roads == null) {
+                    System.out.println("Unknown generator " + generator);
+                    return;
+                }
+                runAll(generator, roads);
+            }
+        }
+        System.out.println("sink " + sink);
+    }
+
+    /**
+     * Runs every benchmark on one map. The start and end points of the route benchmarks are picked
+     * with the same seed on every run, so every commit measures the same routes.
+     *
+     * @param generator the name of the generator of the map
+     * @param roads the roads of the map
+     */
+    private void runAll(String generator, List<Road> roads) {
+        RoutePlanner planner = new RoutePlanner(roads);
+        RoadGraph graph = new RoadGraph(roads);
+        int pointCount = graph.getPointCount();
+        Random random = new Random(seed);
+        String[] starts = new String[warmup + iterations];
+        String[] ends = new String[warmup + iterations];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = graph.getPointName(random.nextInt(pointCount));
+            ends[i] = graph.getPointName(random.nextInt(pointCount));
+        }
+        int[] run = new int[1];
+
+        measure(generator, roads.size(), pointCount, "RoutePlanner", () -> sink += new RoutePlanner(roads).hashCode());
+        measureTimed(generator, roads.size(), pointCount, "calculateShortestRoute", () -> {
+            // A new planner every run, so the tree cache never answers. The tree is calculated by the first route.
+            RoutePlanner fresh = new RoutePlanner(roads);
+            long start = System.nanoTime();
+            fresh.calculateShortestRoute(starts[run[0]], roads);
+            sink += fresh.getShortestRoute(starts[run[0]], ends[run[0]]).size();
+            long time = System.nanoTime() - start;
+            run[0] = (run[0] + 1) % starts.length;
+            return time;
+        });
+        measureTimed(generator, roads.size(), pointCount, "getShortestRoute", () -> {
+            // A new planner every run, so neither the route cache nor the tree cache answers.
+            RoutePlanner fresh = new RoutePlanner(roads);
+            fresh.calculateShortestRoute(starts[0], fresh.getRoads());
+            long start = System.nanoTime();
+            for (String end : ends) {
+                sink += fresh.getShortestRoute(starts[0], end).size();
+            }
+            return System.nanoTime() - start;
+        });
+        planner.calculateShortestRoute(starts[0], planner.getRoads());
+        for (String end : ends) {
+            sink += planner.getShortestRoute(starts[0], end).size();
+        }
+        RouteCache routeCache = planner.getRouteCache();
+        long hits = routeCache.getHits();
+        long misses = routeCache.getMisses();
+        measure(generator, roads.size(), pointCount, "getShortestRoute(cached)", () -> {
+            for (String end : ends) {
+                sink += planner.getShortestRoute(starts[0], end).size();
+            }
+        });
+        System.out.println("route cache: " + (routeCache.getHits() - hits) + " hits, "
+                + (routeCache.getMisses() - misses) + " misses in getShortestRoute(cached)");
+        measure(generator, roads.size(), pointCount, "findShortestRoute", () -> {
+            sink += planner.findShortestRoute(starts[run[0]], ends[run[0]], planner.getRoads()).size();
+            run[0] = (run[0] + 1) % starts.length;
+        });
+        measure(generator, roads.size(), pointCount, "calculateBarelyConnectedMap",
+                () -> sink += planner.calculateBarelyConnectedMap().size());
+        measure(generator, roads.size(), pointCount, "calculateBarelyConnectedMap(filter)",
+                () -> sink += planner.calculateBarelyConnectedMap(true).size());
+
+        List<List<Road>> shortestRoutes = new ArrayList<>();
+        for (int i = 0; i < starts.length; i++) {
+            planner.calculateShortestRoute(starts[i], planner.getRoads());
+            shortestRoutes.add(planner.getShortestRoute(starts[i], ends[i]));
+        }
+        measureTimed(generator, roads.size(), pointCount, "calculateMapsRatio", () -> {
+            // A new planner every run, so the route on the barely connected map is not cached yet.
+            int i = run[0];
+            RoutePlanner fresh = new RoutePlanner(roads);
+            List<Road> freshMap = fresh.calculateBarelyConnectedMap();
+            long start = System.nanoTime();
+            sink += fresh.calculateMapsRatio(starts[i], ends[i], shortestRoutes.get(i), freshMap).size();
+            long time = System.nanoTime() - start;
+            run[0] = (run[0] + 1) % starts.length;
+            return time;
+        });
+    }
+
+    private void measure(String generator, int roadCount, int pointCount, String name, Runnable operation) {
+        measureTimed(generator, roadCount, pointCount, name, () -> {
+            long start = System.nanoTime();
+            operation.run();
+            return System.nanoTime() - start;
+        });
+    }
+
+    /**
+     * Runs a timed operation the warmup and measured number of times and appends its line to the CSV file.
+     *
+     * @param operation an operation that returns the nanoseconds it took
+     */
+    private void measureTimed(String generator, int roadCount, int pointCount, String name, TimedOperation operation) {
+        for (int i = 0; i < warmup; i++) {
+            operation.run();
+        }
+        long total = 0;
+        long min = Long.MAX_VALUE;
+        long max = 0;
+        for (int i = 0; i < iterations; i++) {
+            long time = operation.run();
+            total += time;
+            min = Math.min(min, time);
+            max = Math.max(max, time);
+        }
+        String line = String.format(Locale.ROOT, "%s,%s,%d,%d,%s,%d,%.3f,%.3f,%.3f",
+                label, generator, roadCount, pointCount, name, iterations, total / 1e6 / iterations, min / 1e6, max / 1e6);
+        System.out.println(line);
+        FileOutput.writeToFile(outputFile, line, true, true);
+    }
+
+    private interface TimedOperation {
+        long run();
+    }
+}
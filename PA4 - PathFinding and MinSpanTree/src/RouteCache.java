@@ -0,0 +1,131 @@
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded least recently used cache of finished routes, keyed by start point, end point and the graph and version of
+ * the roads the route was found on. All methods are synchronized, so the cache can be shared by concurrent readers,
+ * and it counts its hits, misses and evictions.
+ */
+public class RouteCache {
+    private final int capacity;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final Map<Key, List<Road>> routes;
+
+    /**
+     * Constructs an empty cache.
+     *
+     * @param capacity the number of routes kept before the least recently used one is dropped
+     */
+    public RouteCache(int capacity) {
+        this.capacity = capacity;
+        this.routes = new LinkedHashMap<Key, List<Road>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, List<Road>> eldest) {
+                if (size() > RouteCache.this.capacity) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns a cached route.
+     *
+     * @param graph the graph the route was found on
+     * @param version the version of the roads of the graph
+     * @param start the start point of the route
+     * @param end the end point of the route
+     * @return the route, or null if it is not in the cache
+     */
+    public synchronized List<Road> get(RoadGraph graph, int version, String start, String end) {
+        List<Road> route = routes.get(new Key(graph, version, start, end));
+        if (route == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return route;
+    }
+
+    /**
+     * Adds a route to the cache. The list must not be changed afterwards.
+     *
+     * @param graph the graph the route was found on
+     * @param version the version of the roads of the graph
+     * @param start the start point of the route
+     * @param end the end point of the route
+     * @param route the roads of the route
+     */
+    public synchronized void put(RoadGraph graph, int version, String start, String end, List<Road> route) {
+        routes.put(new Key(graph, version, start, end), route);
+    }
+
+    /**
+     * Removes the routes found on a graph, for example when the graph is no longer used.
+     *
+     * @param graph the graph
+     */
+    public synchronized void removeGraph(RoadGraph graph) {
+        routes.keySet().removeIf(key -> key.graph == graph);
+    }
+
+    /**
+     * Removes every route, for example after the roads were changed.
+     */
+    public synchronized void clear() {
+        routes.clear();
+    }
+
+    public synchronized int size() {
+        return routes.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * The key of a cached route. Graphs are compared by identity, since they are never changed after they are built.
+     */
+    private static final class Key {
+        private final RoadGraph graph;
+        private final int version;
+        private final String start;
+        private final String end;
+
+        private Key(RoadGraph graph, int version, String start, String end) {
+            this.graph = graph;
+            this.version = version;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return graph == other.graph && version == other.version && start.equals(other.start) && end.equals(other.end);
+        }
+
+        @Override
+        public int hashCode() {
+            return ((31 * System.identityHashCode(graph) + version) * 31 + start.hashCode()) * 31 + end.hashCode();
+        }
+    }
+}
@@ -1,6 +1,11 @@
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 /**
  * The RouteManager class handles the process of reading road data from an input file,
@@ -25,7 +30,7 @@ public class RouteManager {
 
         RoutePlanner planner = new RoutePlanner(roads);
 
-        List<Road> shortestRoute = getShortestRoute(planner, start, end, roads);
+        List<Road> shortestRoute = getShortestRoute(planner, start, end, planner.getRoads());
         List<Road> barelyConnectedMap = planner.calculateBarelyConnectedMap();
         List<Road> shortestRouteBarelyConnected = getShortestRoute(planner, start, end, barelyConnectedMap);
 
@@ -34,6 +39,283 @@ public class RouteManager {
         writeOutputFile(outputFile, start, end, shortestRoute, barelyConnectedMap, shortestRouteBarelyConnected, analysisResults, planner);
     }
 
+    /**
+     * Reads an input file like processRoutes and writes the k shortest routes between its start and end points,
+     * the fastest route first and then the alternatives in order of distance, each with its distance and its roads.
+     *
+     * @param inputFile the path to the input file containing road data and start/end points
+     * @param k the number of routes
+     * @param outputFile the path to the output file where the routes will be written
+     */
+    public void processAlternativeRoutes(String inputFile, int k, String outputFile) {
+        String[] lines = FileInput.readFile(inputFile, true, true);
+
+        String[] points = lines[0].split("\t");
+        String start = points[0];
+        String end = points[1];
+
+        List<Road> roads = parseRoads(lines);
+        RoutePlanner planner = new RoutePlanner(roads);
+        List<List<Road>> routes = planner.findAlternativeRoutes(start, end, k, roads);
+
+        try (ReportWriter writer = new ReportWriter(outputFile)) {
+            if (routes.isEmpty()) {
+                writer.write("Fastest Route from ").write(start).write(" to ").write(end).write(" (0 KM):\n");
+            }
+            for (int i = 0; i < routes.size(); i++) {
+                List<Road> route = routes.get(i);
+                writer.write(i == 0 ? "Fastest Route from " : "Alternative Route " + i + " from ")
+                        .write(start).write(" to ").write(end)
+                        .write(" (").write(planner.calculateRouteDistance(route)).write(" KM):\n");
+                writer.writeRoads(route);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Answers many start/end queries on the same roads. The roads are read and turned into a graph once,
+     * queries that share a start point are answered from one shortest route tree, and the trees of different
+     * start points are calculated in parallel on a fork-join pool. Every query is written as a fastest route
+     * section, in the order of the query file, through a single buffered writer.
+     *
+     * @param inputFile the path to the input file containing road data, or a graph file written by convertRoads
+     * @param queryFile the path to the file containing one tab separated start/end pair per line
+     * @param outputFile the path to the output file where the results will be written
+     */
+    public void processQueries(String inputFile, String queryFile, String outputFile) {
+        RoadGraph graph = loadGraph(inputFile);
+        if (graph == null) {
+            return;
+        }
+        String[][] points = parseQueries(queryFile);
+
+        Map<String, List<Integer>> queriesByStart = new LinkedHashMap<>();
+        for (int i = 0; i < points.length; i++) {
+            if (points[i] != null) {
+                queriesByStart.computeIfAbsent(points[i][0], key -> new ArrayList<>()).add(i);
+            }
+        }
+
+        String[] results = new String[points.length];
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            pool.submit(() -> queriesByStart.entrySet().parallelStream().forEach(entry -> {
+                ShortestPathTree tree = ShortestPathTree.calculate(graph, entry.getKey());
+                for (int i : entry.getValue()) {
+                    results[i] = formatRoute(points[i][0], points[i][1], tree.getRoute(points[i][0], points[i][1]));
+                }
+            })).get();
+        } catch (InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+            return;
+        } finally {
+            pool.shutdown();
+        }
+        writeResults(outputFile, results);
+    }
+
+    /**
+     * Writes the distances between every pair of hub points as a CSV matrix: a header line with the hubs, then one line
+     * per hub with its distance to every hub, -1 where there is no route. The searches of different hubs run in parallel
+     * on a fork-join pool over the same graph; every thread has its own DistanceSearch and distance array.
+     *
+     * @param inputFile the path to the input file containing road data, or a graph file written by convertRoads
+     * @param hubFile the path to the file containing one hub point per line
+     * @param outputFile the path to the CSV file the matrix will be written to
+     */
+    public void processDistanceMatrix(String inputFile, String hubFile, String outputFile) {
+        RoadGraph graph = loadGraph(inputFile);
+        if (graph == null) {
+            return;
+        }
+        String[] hubs = FileInput.readFile(hubFile, true, true);
+        int[] hubIds = new int[hubs.length];
+        for (int i = 0; i < hubs.length; i++) {
+            hubIds[i] = graph.getPointId(hubs[i]);
+        }
+
+        int[][] matrix = new int[hubs.length][];
+        ThreadLocal<DistanceSearch> searches = ThreadLocal.withInitial(() -> new DistanceSearch(graph));
+        ThreadLocal<int[]> distances = ThreadLocal.withInitial(() -> new int[graph.getPointCount()]);
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            pool.submit(() -> IntStream.range(0, hubs.length).parallel().forEach(i -> {
+                int[] row = new int[hubs.length];
+                if (hubIds[i] == -1) {
+                    for (int j = 0; j < hubs.length; j++) {
+                        row[j] = hubs[i].equals(hubs[j]) ? 0 : -1;
+                    }
+                } else {
+                    int[] distance = distances.get();
+                    searches.get().calculate(hubIds[i], distance);
+                    for (int j = 0; j < hubs.length; j++) {
+                        row[j] = hubIds[j] == -1 ? -1 : distance[hubIds[j]];
+                    }
+                }
+                matrix[i] = row;
+            })).get();
+        } catch (InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+            return;
+        } finally {
+            pool.shutdown();
+        }
+
+        try (ReportWriter writer = new ReportWriter(outputFile)) {
+            for (String hub : hubs) {
+                writer.write(",").write(hub);
+            }
+            writer.write("\n");
+            for (int i = 0; i < hubs.length; i++) {
+                writer.write(hubs[i]);
+                for (int distance : matrix[i]) {
+                    writer.write(",").write(distance);
+                }
+                writer.write("\n");
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Builds the contraction hierarchy of the roads in an input file and writes it to a file,
+     * so route queries on the same map can later be answered without preprocessing it again.
+     *
+     * @param inputFile the path to the input file containing road data, or a graph file written by convertRoads
+     * @param hierarchyFile the path to the file the hierarchy will be written to
+     */
+    public void buildHierarchy(String inputFile, String hierarchyFile) {
+        RoadGraph graph = loadGraph(inputFile);
+        if (graph == null) {
+            return;
+        }
+        try {
+            ContractionHierarchy.build(graph).save(hierarchyFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Converts the roads of a text input file to a binary graph file that loadGraph maps instead of parsing.
+     *
+     * @param inputFile the path to the input file containing road data; its first line is skipped like in processRoutes
+     * @param graphFile the path to the graph file that will be written
+     */
+    public void convertRoads(String inputFile, String graphFile) {
+        String[] lines = FileInput.readFile(inputFile, true, true);
+        try {
+            RoadGraphFile.write(new RoadGraph(parseRoads(lines)), graphFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Loads the road graph of an input file, reading it as a binary graph file if it is one and parsing it as text otherwise.
+     *
+     * @param inputFile the path to the input file
+     * @return the graph of the roads, or null if the graph file cannot be read
+     */
+    private RoadGraph loadGraph(String inputFile) {
+        if (RoadGraphFile.isGraphFile(inputFile)) {
+            try {
+                return RoadGraphFile.read(inputFile);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+        return new RoadGraph(parseRoads(FileInput.readFile(inputFile, true, true)));
+    }
+
+    /**
+     * Answers start/end queries with a contraction hierarchy written by buildHierarchy.
+     * The output has the same format as processQueries.
+     *
+     * @param hierarchyFile the path to the hierarchy file
+     * @param queryFile the path to the file containing one tab separated start/end pair per line
+     * @param outputFile the path to the output file where the results will be written
+     */
+    public void processHierarchyQueries(String hierarchyFile, String queryFile, String outputFile) {
+        ContractionHierarchy hierarchy;
+        try {
+            hierarchy = ContractionHierarchy.load(hierarchyFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        String[][] points = parseQueries(queryFile);
+        String[] results = new String[points.length];
+        for (int i = 0; i < points.length; i++) {
+            if (points[i] != null) {
+                results[i] = formatRoute(points[i][0], points[i][1], hierarchy.getRoute(points[i][0], points[i][1]));
+            }
+        }
+        writeResults(outputFile, results);
+    }
+
+    /**
+     * Parses a query file into start/end pairs.
+     *
+     * @param queryFile the path to the file containing one tab separated start/end pair per line
+     * @return the start and end point of every query, or null for lines that are not a query
+     */
+    private String[][] parseQueries(String queryFile) {
+        String[] queries = FileInput.readFile(queryFile, true, true);
+        String[][] points = new String[queries.length][];
+        for (int i = 0; i < queries.length; i++) {
+            String[] parts = queries[i].split("\t");
+            if (parts.length >= 2) {
+                points[i] = parts;
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Writes the formatted query results to an output file through a single ReportWriter.
+     *
+     * @param outputFile the path to the output file
+     * @param results the formatted results; null entries are skipped
+     */
+    private void writeResults(String outputFile, String[] results) {
+        try (ReportWriter writer = new ReportWriter(outputFile)) {
+            for (String result : results) {
+                if (result != null) {
+                    writer.write(result);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Formats the fastest route of a query as a header line followed by one line per road.
+     *
+     * @param start the starting point of the route
+     * @param end the end point of the route
+     * @param route the roads of the route
+     * @return the formatted route
+     */
+    private String formatRoute(String start, String end, List<Road> route) {
+        int distance = 0;
+        for (Road road : route) {
+            distance += road.getLength();
+        }
+        StringBuilder builder = new StringBuilder();
+        builder.append("Fastest Route from ").append(start).append(" to ").append(end)
+                .append(" (").append(distance).append(" KM):\n");
+        for (Road road : route) {
+            builder.append(road).append('\n');
+        }
+        return builder.toString();
+    }
+
     /**
      * Parses road data from the provided lines of text into a list of Road objects.
      *
@@ -67,6 +349,7 @@ public class RouteManager {
 
     /**
      * Writes the results of the route analysis to an output file.
+     * The whole report is written through one ReportWriter, which keeps the file open and formats the roads into its buffer.
      *
      * @param outputFile the file path where the results will be written
      * @param start the starting point of the route
@@ -78,26 +361,25 @@ public class RouteManager {
      * @param planner the RoutePlanner instance used for route calculations
      */
     private void writeOutputFile(String outputFile, String start, String end, List<Road> shortestRoute, List<Road> barelyConnectedMap, List<Road> shortestRouteBarelyConnected, Map<String, Double> analysisResults, RoutePlanner planner) {
-        FileOutput.writeToFile(outputFile, "Fastest Route from " + start + " to " + end + " (" + planner.calculateRouteDistance(shortestRoute) + " KM):\n", false, false);
-        for (Road road : shortestRoute) {
-            FileOutput.writeToFile(outputFile, road.toString() + "\n", true, false);
-        }
-
-        FileOutput.writeToFile(outputFile, "Roads of Barely Connected Map is:\n", true, false);
-        for (Road road : barelyConnectedMap) {
-            FileOutput.writeToFile(outputFile, road.toString() + "\n", true, false);
-        }
+        try (ReportWriter writer = new ReportWriter(outputFile)) {
+            writer.write("Fastest Route from ").write(start).write(" to ").write(end)
+                    .write(" (").write(planner.calculateRouteDistance(shortestRoute)).write(" KM):\n");
+            writer.writeRoads(shortestRoute);
 
-        FileOutput.writeToFile(outputFile, "Fastest Route from " + start + " to " + end + " on Barely Connected Map (" + planner.calculateRouteDistance(shortestRouteBarelyConnected) + " KM):\n", true, false);
-        for (Road road : shortestRouteBarelyConnected) {
-            FileOutput.writeToFile(outputFile, road.toString() + "\n", true, false);
-        }
+            writer.write("Roads of Barely Connected Map is:\n");
+            writer.writeRoads(barelyConnectedMap);
 
-        FileOutput.writeToFile(outputFile, "Analysis:\n", true, false);
-        double materialRatio = analysisResults.get("materialRatio");
-        double routeRatio = analysisResults.get("routeRatio");
-        FileOutput.writeToFile(outputFile, "Ratio of Construction Material Usage Between Barely Connected and Original Map: " + String.format("%.2f", materialRatio) + "\n", true, false);
-        FileOutput.writeToFile(outputFile, "Ratio of Fastest Route Between Barely Connected and Original Map: " + String.format("%.2f", routeRatio), true, false);
+            writer.write("Fastest Route from ").write(start).write(" to ").write(end)
+                    .write(" on Barely Connected Map (").write(planner.calculateRouteDistance(shortestRouteBarelyConnected)).write(" KM):\n");
+            writer.writeRoads(shortestRouteBarelyConnected);
 
+            writer.write("Analysis:\n");
+            double materialRatio = analysisResults.get("materialRatio");
+            double routeRatio = analysisResults.get("routeRatio");
+            writer.write("Ratio of Construction Material Usage Between Barely Connected and Original Map: " + String.format("%.2f", materialRatio) + "\n");
+            writer.write("Ratio of Fastest Route Between Barely Connected and Original Map: " + String.format("%.2f", routeRatio));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 }
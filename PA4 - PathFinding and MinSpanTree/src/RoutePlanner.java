@@ -3,179 +3,492 @@ import java.util.*;
  * The RoutePlanner class is responsible for calculating the shortest paths and constructing a minimally connected network of roads.
  * It supports calculating the shortest routes between points, creating a barely connected map using a union-find algorithm,
  * and analyzing the efficiency of the generated routes compared to original routes.
+ * A planner is meant for one thread. The exception is getShortestRoute, which several threads may call at the same time
+ * once calculateShortestRoute was called, as long as no other method of the planner runs meanwhile.
  */
 public class RoutePlanner {
-    private List<Road> roads;
-    private Map<String, Route> shortestPathMap;
-    private Map<String, String> parent = new HashMap<>();
-    private Map<String, Integer> rank = new HashMap<>();
+    private static final int FILTER_THRESHOLD = 1 << 12;
+    private static final int TREE_CACHE_SIZE = 16;
+    private static final int ROUTE_CACHE_SIZE = 1024;
+
+    private final List<Road> roads;
+    private final List<Road> roadsView;
+    private RoadGraph graph;
+    private RoadGraph routeGraph;
+    private String routeStart;
+    private PointToPointSearch pointToPointSearch;
+    private PointToPointSearch otherSearch;
+    private LandmarkIndex landmarks;
+    private int landmarkCount;
+    private List<Road> barelyConnectedMap;
+    private RoadGraph barelyConnectedGraph;
+    private List<Road> otherRoads;
+    private RoadGraph otherGraph;
+    private DynamicBarelyConnectedMap dynamicMap;
+    private final Map<Road, Integer> removedRoads = new IdentityHashMap<>();
+    private int version;
+    private final RouteCache routeCache = new RouteCache(ROUTE_CACHE_SIZE);
+    private final Map<TreeKey, ShortestPathTree> treeCache = new LinkedHashMap<TreeKey, ShortestPathTree>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<TreeKey, ShortestPathTree> eldest) {
+            return size() > TREE_CACHE_SIZE;
+        }
+    };
 
     /**
-     * Initializes a new RoutePlanner with a specified list of roads.
+     * Initializes a new RoutePlanner with a copy of a specified list of roads and builds the graph of these roads once.
+     * Later changes to the given list do not change the roads of this planner; use addRoad and removeRoad instead.
      *
      * @param roads the list of roads.
      */
     public RoutePlanner(List<Road> roads) {
-        this.roads = roads;
-        this.shortestPathMap = new HashMap<>();
+        this.roads = new ArrayList<>(roads);
+        this.roadsView = new AbstractList<Road>() {
+            @Override
+            public Road get(int index) {
+                compactRoads();
+                return RoutePlanner.this.roads.get(index);
+            }
+
+            @Override
+            public int size() {
+                compactRoads();
+                return RoutePlanner.this.roads.size();
+            }
+        };
+        this.graph = new RoadGraph(this.roads);
+    }
+
+    /**
+     * Returns the roads of this planner as a list that cannot be changed.
+     * Passing this list to the methods that take a list of roads finds the graph of the planner without comparing the roads.
+     *
+     * @return the roads of this planner
+     */
+    public List<Road> getRoads() {
+        return roadsView;
     }
 
     /**
      * Calculates the shortest route starting from a specified point.
      * The method initializes paths and progressively builds the shortest path using a modified it is explained in pdf for fastest route algorithm.
+     * Only the roads and the start point are kept here; the tree is calculated the first time getShortestRoute needs it,
+     * so a route that is already in the route cache is answered without any search.
+     * The calculated tree is kept in a small least recently used cache keyed by the start point and the graph it was calculated on,
+     * so calculating it again from the same start on the same roads reuses the settled tree.
      *
      * @param start starting point for the shortest path calculation.
      * @param roads roads available for constructing the route.
      */
     public void calculateShortestRoute(String start, List<Road> roads) {
-        List<Route> routeList = new ArrayList<>();
-        shortestPathMap.clear();
-        shortestPathMap.put(start, new Route(0, null, start, start, 0));
-        for (Road road : roads) {
-            if (road.getPoint1().equals(start) || road.getPoint2().equals(start)) {
-                String neighbor = road.getPoint1().equals(start) ? road.getPoint2() : road.getPoint1();
-                routeList.add(new Route(road.getLength(), road, start, neighbor, 0));
-            }
-        }
-
-        int i = 1;
-        while (!routeList.isEmpty()) {
-            routeList.sort(new Comparator<Route>() {
-            public int compare(Route o1, Route o2) {
-                // 1. Compare by Distance (if priorities are equal)
-                int distanceComparison = Integer.compare(o1.getDistance(), o2.getDistance());
-                if (distanceComparison != 0) {
-                    return distanceComparison;
-                }
-
-                // 2. Compare by Priority
-                int priorityComparison = Integer.compare(o1.getPriority(), o2.getPriority());
-                if (priorityComparison != 0) {
-                    return priorityComparison;
-                }
-
-                // 3. Compare by ID (if both priority and distance are equal)
-                return Integer.compare(o1.getRoad().getId(), o2.getRoad().getId());
-            }
-        });
-
-            Route currentRoute = routeList.remove(0);
-            String currentPoint = currentRoute.getPoint2();
+        routeGraph = getGraph(roads);
+        routeStart = start;
+    }
 
-            if (shortestPathMap.containsKey(currentPoint)) {
-                continue;
-            }
+    /**
+     * Returns the shortest route tree of a start point on the roads of the last calculateShortestRoute call,
+     * from the tree cache if it is there.
+     *
+     * @param start the start point of the tree
+     * @return the tree
+     */
+    private ShortestPathTree getShortestPathTree(String start) {
+        TreeKey key = new TreeKey(routeGraph, start);
+        ShortestPathTree tree = treeCache.get(key);
+        if (tree == null) {
+            tree = ShortestPathTree.calculate(routeGraph, start);
+            treeCache.put(key, tree);
+        }
+        return tree;
+    }
 
-            shortestPathMap.put(currentPoint, currentRoute);
+    /**
+     * Returns the graph of a list of roads, reusing the graphs built for the roads of this planner and for its last barely connected map.
+     * Reusing the same graph object lets a shortest route tree calculated on it be found in the tree cache.
+     * The planner keeps its own copies of those roads, which only change through addRoad and removeRoad, and a list is matched
+     * to them by comparing its roads, so a list that was changed in place, even with set, never gets the graph of its old roads.
+     * Any other list gets a graph of its own, which is kept for the next call with the same roads; when it is replaced,
+     * the trees calculated on the old one are dropped.
+     *
+     * @param roads the list of roads
+     * @return the graph of the roads
+     */
+    private RoadGraph getGraph(List<Road> roads) {
+        compactRoads();
+        if (roads == roadsView || roads.equals(this.roads)) {
+            return getRoadGraph();
+        }
+        if (barelyConnectedMap != null && roads.equals(barelyConnectedMap)) {
+            return barelyConnectedGraph;
+        }
+        if (otherGraph == null || !roads.equals(otherRoads)) {
+            dropGraph(otherGraph);
+            otherRoads = new ArrayList<>(roads);
+            otherGraph = new RoadGraph(otherRoads);
+        }
+        return otherGraph;
+    }
 
-            for (Road road : roads) {
-                if (road.getPoint1().equals(currentPoint) || road.getPoint2().equals(currentPoint)) {
-                    String neighbor = road.getPoint1().equals(currentPoint) ? road.getPoint2() : road.getPoint1();
-                    if (!shortestPathMap.containsKey(neighbor)) {
-                        int newDistance = currentRoute.getDistance() + road.getLength();
-                        routeList.add(new Route(newDistance, road, currentPoint, neighbor, i));
-                    }
-                }
-            }
-            i++;
+    /**
+     * Drops the shortest route trees and the routes calculated on a graph that is no longer used.
+     *
+     * @param roadGraph the old graph, or null
+     */
+    private void dropGraph(RoadGraph roadGraph) {
+        if (roadGraph != null) {
+            treeCache.keySet().removeIf(key -> key.graph == roadGraph);
+            routeCache.removeGraph(roadGraph);
         }
     }
 
     /**
-     * Retrieves the shortest route from the starting point to a specified endpoint.
-     * If no route exists, returns an empty list.
+     * Retrieves the shortest route from the starting point to a specified endpoint on the roads of the last
+     * calculateShortestRoute call. If no route exists, returns an empty list.
+     * Finished routes are kept in a RouteCache keyed by the start and end points and the graph and version of the roads,
+     * and a cached route is returned without any search. Otherwise a route from the calculated start point is read from
+     * its shortest route tree, and a route from any other start point is found with a point-to-point search; both return
+     * the same roads as the fastest route algorithm explained in pdf. The returned list cannot be changed.
+     * Concurrent calls are safe: a cached route is read through the synchronized RouteCache, and since the tree cache
+     * and the searches are shared, routes that are not cached are found one at a time.
      *
      * @param start the start point of the route
      * @param end the end point of the route
      * @return a list of Roads representing the shortest route from start to end
      */
     public List<Road> getShortestRoute(String start, String end) {
-        List<Road> route = new ArrayList<>();
-        String current = end;
-        while (!current.equals(start) && shortestPathMap.containsKey(current)) {
-            Route routeInfo = shortestPathMap.get(current);
-            route.add(routeInfo.getRoad());
-            current = routeInfo.getPoint1().equals(current) ? routeInfo.getPoint2() : routeInfo.getPoint1();
+        if (routeGraph == null) {
+            return Collections.emptyList();
         }
-        if (!current.equals(start)) {
-            return new ArrayList<>();
+        List<Road> route = routeCache.get(routeGraph, version, start, end);
+        if (route == null) {
+            route = findRoute(start, end);
+            routeCache.put(routeGraph, version, start, end, route);
         }
-        Collections.reverse(route);
         return route;
     }
+
+    /**
+     * Finds a route that is not in the route cache, from the shortest route tree of the calculated start point
+     * or with a point-to-point search from any other start point.
+     */
+    private synchronized List<Road> findRoute(String start, String end) {
+        return Collections.unmodifiableList(start.equals(routeStart)
+                ? getShortestPathTree(start).getRoute(start, end)
+                : getPointToPointSearch(routeGraph).getRoute(start, end));
+    }
+
+    /**
+     * Returns the cache of finished routes, whose counters show how many getShortestRoute calls it answered.
+     *
+     * @return the route cache
+     */
+    public RouteCache getRouteCache() {
+        return routeCache;
+    }
+    /**
+     * Finds the shortest route between two points without calculating the whole shortest route tree.
+     * The search stops once the end point is settled and skips points that cannot be on a fastest route,
+     * and it returns the same roads as calculateShortestRoute followed by getShortestRoute.
+     * On the roads of this planner the search is reused between calls and uses landmarks if useLandmarks was called.
+     *
+     * @param start the start point of the route
+     * @param end the end point of the route
+     * @param roads roads available for constructing the route
+     * @return a list of Roads representing the shortest route from start to end
+     */
+    public List<Road> findShortestRoute(String start, String end, List<Road> roads) {
+        return getPointToPointSearch(getGraph(roads)).getRoute(start, end);
+    }
+
     /**
-     * Implements the union-find algorithm to find the root of the point.
-     * If the point is not already present, initializes it.
+     * Returns a point-to-point search on a graph. The search on the roads of this planner uses the landmarks,
+     * and the search of the last other graph is kept, so its arrays are not allocated for every route.
      *
-     * @param point the point to find the root of
-     * @return the root point
+     * @param roadGraph the graph of the roads
+     * @return the search
      */
-    private String unionFind(String point) {
-        if (!parent.containsKey(point)) {
-            parent.put(point, point);
-            rank.put(point, 0);
-            return point;
+    private PointToPointSearch getPointToPointSearch(RoadGraph roadGraph) {
+        if (roadGraph != graph) {
+            if (otherSearch == null || otherSearch.getGraph() != roadGraph) {
+                otherSearch = new PointToPointSearch(roadGraph);
+            }
+            return otherSearch;
         }
+        if (pointToPointSearch == null) {
+            if (landmarkCount > 0 && landmarks == null) {
+                landmarks = new LandmarkIndex(graph, landmarkCount);
+            }
+            pointToPointSearch = new PointToPointSearch(graph, landmarks);
+        }
+        return pointToPointSearch;
+    }
+
+    /**
+     * Finds up to k shortest routes without repeated points between two points, shortest first.
+     * The first one is the route getShortestRoute returns, and the shortest route tree of the start point
+     * is taken from the tree cache when it was calculated before.
+     *
+     * @param start the start point of the routes
+     * @param end the end point of the routes
+     * @param k the number of routes
+     * @param roads roads available for constructing the routes
+     * @return the routes, each a list of Roads; fewer than k if there are no more routes
+     */
+    public List<List<Road>> findAlternativeRoutes(String start, String end, int k, List<Road> roads) {
+        calculateShortestRoute(start, roads);
+        return new AlternativeRoutes(getShortestPathTree(start), end).find(k);
+    }
 
-        if (!parent.get(point).equals(point)) {
-            parent.put(point, unionFind(parent.get(point)));
+    /**
+     * Picks landmarks on the roads of this planner, so findShortestRoute uses an A* search with landmark lower bounds
+     * instead of a bidirectional search. Picking a landmark costs one full shortest route calculation.
+     * The landmarks are picked again after the roads are changed.
+     *
+     * @param count the number of landmarks
+     */
+    public void useLandmarks(int count) {
+        landmarkCount = count;
+        landmarks = count > 0 ? new LandmarkIndex(getRoadGraph(), count) : null;
+        pointToPointSearch = null;
+    }
+
+    /**
+     * Adds a road to the roads of this planner.
+     * From the first change on the barely connected map is maintained by a DynamicBarelyConnectedMap and updated
+     * in logarithmic amortized time; the graph of the roads is built again only when it is needed.
+     *
+     * @param road the new road
+     */
+    public void addRoad(Road road) {
+        getDynamicMap().addRoad(road);
+        roads.add(road);
+        roadsChanged();
+    }
+
+    /**
+     * Removes a road from the roads of this planner and updates the barely connected map.
+     * A road that is not on the map costs logarithmic amortized time; a road on the map costs time linear in the smaller
+     * of the two parts it leaves and their roads, which is linear in the number of roads in the worst case.
+     * The road is only marked as removed here. The list of roads drops all marked roads in one pass the next time it
+     * or the graph of the roads is needed, which builds the graph again anyway.
+     *
+     * @param road the road to remove, the same object that is in the list of roads
+     * @return true if the road was removed, false if it is not one of the roads of this planner
+     */
+    public boolean removeRoad(Road road) {
+        if (!getDynamicMap().removeRoad(road)) {
+            return false;
         }
-        return parent.get(point);
+        removedRoads.merge(road, 1, Integer::sum);
+        roadsChanged();
+        return true;
     }
+
     /**
-     * Unites two subsets into one subset, used in the union-find algorithm to ensure no cycles are formed.
+     * Drops the roads marked by removeRoad from the list of roads, the first occurrences of each like List.remove would.
+     */
+    private void compactRoads() {
+        if (removedRoads.isEmpty()) {
+            return;
+        }
+        int kept = 0;
+        for (int i = 0; i < roads.size(); i++) {
+            Road road = roads.get(i);
+            Integer count = removedRoads.get(road);
+            if (count != null) {
+                if (count == 1) {
+                    removedRoads.remove(road);
+                } else {
+                    removedRoads.put(road, count - 1);
+                }
+                continue;
+            }
+            roads.set(kept++, road);
+        }
+        roads.subList(kept, roads.size()).clear();
+    }
+
+    /**
+     * Returns the ratio of the total length of the barely connected map to the total length of all roads,
+     * kept up to date by addRoad and removeRoad.
      *
-     * @param root1 the root of first subset
-     * @param root2 the root of second subset
+     * @return the construction material ratio
      */
-    private void union(String root1, String root2) {
-        if (rank.get(root1) < rank.get(root2)) {
-            parent.put(root1, root2);
-        } else if (rank.get(root1) > rank.get(root2)) {
-            parent.put(root2, root1);
-        } else {
-            parent.put(root1, root2);
-            rank.put(root2, rank.get(root2) + 1);
+    public double getMaterialRatio() {
+        return getDynamicMap().getMaterialRatio();
+    }
+
+    /**
+     * Returns the version of the roads of this planner, which goes up every time a road is added or removed.
+     *
+     * @return the version of the roads
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    private DynamicBarelyConnectedMap getDynamicMap() {
+        if (dynamicMap == null) {
+            dynamicMap = new DynamicBarelyConnectedMap(roads, calculateBarelyConnectedMap(true));
+        }
+        return dynamicMap;
+    }
+
+    private RoadGraph getRoadGraph() {
+        compactRoads();
+        if (graph == null) {
+            graph = new RoadGraph(roads);
         }
+        return graph;
     }
+
+    /**
+     * Drops everything that was calculated on the old roads.
+     */
+    private void roadsChanged() {
+        version++;
+        graph = null;
+        routeGraph = null;
+        routeStart = null;
+        pointToPointSearch = null;
+        otherSearch = null;
+        landmarks = null;
+        barelyConnectedMap = null;
+        barelyConnectedGraph = null;
+        treeCache.clear();
+        routeCache.clear();
+    }
+
     /**
      * Calculates a barely connected map using It is explained in pdf  algorithm for barely connected map.
-     * This function sorts the roads by length and attempts to add the shortest roads without forming a cycle.
+     * This function sorts the roads by length and attempts to add the shortest roads without forming a cycle,
+     * tracking the connected points with a DisjointSet over the point ids of the graph.
+     * Roads are sorted as primitive keys with a parallel sort, so the list of roads given to this planner keeps its order.
+     * Once roads have been added or removed the map is read from the barely connected map maintained by addRoad and removeRoad.
+     * The returned list is a copy, so changing it does not change the map kept by this planner.
      *
      * @return a list of Roads that forms the barely connected map
      */
     public List<Road> calculateBarelyConnectedMap() {
+        return calculateBarelyConnectedMap(false);
+    }
+
+    /**
+     * Calculates a barely connected map, optionally with the filter variant of the algorithm.
+     * The filter variant splits the roads around a pivot length, connects the points with the shorter roads first
+     * and drops the longer roads whose points are already connected before sorting them, which saves most of the sorting on large maps.
+     * Both variants return the same roads in the same order. The returned list is a copy of the map kept by this planner.
+     *
+     * @param filter true to use the filter variant, false to sort all the roads at once
+     * @return a list of Roads that forms the barely connected map
+     */
+    public List<Road> calculateBarelyConnectedMap(boolean filter) {
+        if (dynamicMap != null) {
+            return keepBarelyConnectedMap(dynamicMap.getRoads());
+        }
+        RoadGraph graph = getRoadGraph();
         List<Road> barelyConnectedMap = new ArrayList<>();
-        parent.clear();
-        rank.clear();
+        DisjointSet points = new DisjointSet(graph.getPointCount());
+        RoadKeys roadKeys = new RoadKeys(graph);
+        long[] keys = roadKeys.getKeys();
 
-        for (Road road : roads) {
-            unionFind(road.getPoint1());
-            unionFind(road.getPoint2());
+        if (filter) {
+            filterBarelyConnectedMap(keys, 0, keys.length, roadKeys, points, barelyConnectedMap);
+        } else {
+            Arrays.parallelSort(keys);
+            connectRoads(keys, 0, keys.length, roadKeys, points, barelyConnectedMap);
         }
+        return keepBarelyConnectedMap(barelyConnectedMap);
+    }
 
-        roads.sort(new Comparator<Road>() {
-            @Override
-            public int compare(Road r1, Road r2) {
-                int lengthCompare = Integer.compare(r1.getLength(), r2.getLength());
-                if (lengthCompare != 0) return lengthCompare;
-                return Integer.compare(r1.getId(), r2.getId());
+    /**
+     * Keeps a calculated barely connected map and its graph. The graph is only built again when the roads of the map changed,
+     * so the trees calculated on it stay in the tree cache; the trees of a replaced graph are dropped.
+     *
+     * @param barelyConnectedMap the calculated map, which this planner keeps
+     * @return a copy of the map for the caller
+     */
+    private List<Road> keepBarelyConnectedMap(List<Road> barelyConnectedMap) {
+        if (!barelyConnectedMap.equals(this.barelyConnectedMap)) {
+            dropGraph(barelyConnectedGraph);
+            this.barelyConnectedMap = barelyConnectedMap;
+            this.barelyConnectedGraph = new RoadGraph(barelyConnectedMap);
+        }
+        return new ArrayList<>(barelyConnectedMap);
+    }
+
+    /**
+     * Adds the roads of the given sorted key range that connect two different subsets to the barely connected map.
+     *
+     * @param keys the keys of the roads
+     * @param from the first key of the range, inclusive
+     * @param to the last key of the range, exclusive
+     * @param roadKeys the road keys the keys belong to
+     * @param points the disjoint set of the points
+     * @param barelyConnectedMap the list the selected roads are added to
+     */
+    private void connectRoads(long[] keys, int from, int to, RoadKeys roadKeys, DisjointSet points, List<Road> barelyConnectedMap) {
+        for (int i = from; i < to; i++) {
+            int roadIndex = roadKeys.getRoadIndex(keys[i]);
+            int root1 = points.find(graph.getRoadPoint1(roadIndex));
+            int root2 = points.find(graph.getRoadPoint2(roadIndex));
+
+            if (root1 != root2) {
+                barelyConnectedMap.add(graph.getRoad(roadIndex));
+                points.union(root1, root2);
             }
-        });
-        for (Road road : roads) {
-            String root1 = unionFind(road.getPoint1());
-            String root2 = unionFind(road.getPoint2());
-
-            if (!root1.equals(root2)) {
-                barelyConnectedMap.add(road);
-                union(root1, root2);
+        }
+    }
+
+    /**
+     * Runs the filter variant of the barely connected map algorithm on an unsorted key range.
+     * Ranges smaller than FILTER_THRESHOLD are sorted and connected directly.
+     *
+     * @param keys the keys of the roads
+     * @param from the first key of the range, inclusive
+     * @param to the last key of the range, exclusive
+     * @param roadKeys the road keys the keys belong to
+     * @param points the disjoint set of the points
+     * @param barelyConnectedMap the list the selected roads are added to
+     */
+    private void filterBarelyConnectedMap(long[] keys, int from, int to, RoadKeys roadKeys, DisjointSet points, List<Road> barelyConnectedMap) {
+        while (to - from > FILTER_THRESHOLD) {
+            long pivot = medianOfThree(keys[from], keys[(from + to) >>> 1], keys[to - 1]);
+            int split = from;
+            for (int i = from; i < to; i++) {
+                if (keys[i] <= pivot) {
+                    long key = keys[i];
+                    keys[i] = keys[split];
+                    keys[split++] = key;
+                }
             }
+            filterBarelyConnectedMap(keys, from, split, roadKeys, points, barelyConnectedMap);
+            if (barelyConnectedMap.size() == graph.getPointCount() - 1) {
+                return;
+            }
+
+            int kept = split;
+            for (int i = split; i < to; i++) {
+                int roadIndex = roadKeys.getRoadIndex(keys[i]);
+                if (points.find(graph.getRoadPoint1(roadIndex)) != points.find(graph.getRoadPoint2(roadIndex))) {
+                    keys[kept++] = keys[i];
+                }
+            }
+            from = split;
+            to = kept;
         }
-        return barelyConnectedMap;
+        Arrays.parallelSort(keys, from, to);
+        connectRoads(keys, from, to, roadKeys, points, barelyConnectedMap);
     }
+
+    private static long medianOfThree(long a, long b, long c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
     /**
      * Analyzes and compares the original shortest route with the route on the barely connected map.
      * Provides metrics on efficiency changes due to the modifications.
+     * The route on the barely connected map is taken from the route cache, where calculating it for the output put it.
      *
      * @param start the start point of the route
      * @param end the end point of the route
@@ -185,10 +498,12 @@ public class RoutePlanner {
      */
     public Map<String, Double> calculateMapsRatio(String start, String end, List<Road> shortestRouteOriginal, List<Road> barelyConnectedMap) {
         calculateShortestRoute(start, barelyConnectedMap);
-        List<Road> shortestRouteBarelyConnected = getShortestRoute(start, end);
+        int shortestDistanceBarelyConnected = calculateRouteDistance(getShortestRoute(start, end));
 
-        double routeRatio = (double) calculateRouteDistance(shortestRouteBarelyConnected) / calculateRouteDistance(shortestRouteOriginal);
-        double materialRatio = (double) calculateRouteDistance(barelyConnectedMap) / calculateRouteDistance(roads);
+        double routeRatio = (double) shortestDistanceBarelyConnected / calculateRouteDistance(shortestRouteOriginal);
+        double materialRatio = dynamicMap != null && barelyConnectedMap.equals(this.barelyConnectedMap)
+                ? dynamicMap.getMaterialRatio()
+                : (double) calculateRouteDistance(barelyConnectedMap) / calculateRouteDistance(roadsView);
 
         Map<String, Double> analysisResults = new HashMap<>();
         analysisResults.put("routeRatio", routeRatio);
@@ -205,4 +520,32 @@ public class RoutePlanner {
     public int calculateRouteDistance(List<Road> route) {
         return route.stream().mapToInt(Road::getLength).sum();
     }
+
+    /**
+     * The key of a cached shortest route tree: the graph it was calculated on, compared by identity, and its start point.
+     * Graphs are never changed after they are built, so a new list of roads always gets a new key.
+     */
+    private static final class TreeKey {
+        private final RoadGraph graph;
+        private final String start;
+
+        private TreeKey(RoadGraph graph, String start) {
+            this.graph = graph;
+            this.start = start;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof TreeKey)) {
+                return false;
+            }
+            TreeKey other = (TreeKey) o;
+            return graph == other.graph && start.equals(other.start);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(graph) + start.hashCode();
+        }
+    }
 }
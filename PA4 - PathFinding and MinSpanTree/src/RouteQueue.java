@@ -0,0 +1,210 @@
+import java.util.Arrays;
+
+/**
+ * An indexed binary min-heap used by the fastest route algorithm.
+ * Every point that is waiting to be settled owns one slot in the queue, so a better route to a point
+ * replaces the old one (decrease-key) instead of being added next to it.
+ * Entries are ordered by distance, then priority, then road id, then insertion order,
+ * which is the same order the fastest route algorithm used to get by sorting its route list.
+ */
+public class RouteQueue {
+    private int[] heap;
+    private int[] position;
+    private int[] distance;
+    private int[] priority;
+    private int[] roadId;
+    private long[] sequence;
+    private int size;
+    private long nextSequence;
+
+    /**
+     * Constructs an empty queue that can hold the given number of slots before growing.
+     *
+     * @param capacity the initial number of slots.
+     */
+    public RouteQueue(int capacity) {
+        capacity = Math.max(capacity, 1);
+        heap = new int[capacity];
+        position = new int[capacity];
+        distance = new int[capacity];
+        priority = new int[capacity];
+        roadId = new int[capacity];
+        sequence = new long[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    /**
+     * Offers a route to the point in the given slot.
+     * If the slot is empty the route is inserted, if the slot already holds a route the new one replaces it only when it comes first.
+     *
+     * @param slot the slot of the point the route is leading to.
+     * @param distance the total distance of the route.
+     * @param priority the priority of the route.
+     * @param roadId the id of the last road of the route.
+     * @return true if the route is stored in the queue, false if the queued route of that slot comes first.
+     */
+    public boolean offer(int slot, int distance, int priority, int roadId) {
+        ensureCapacity(slot + 1);
+        long sequence = nextSequence++;
+        int index = position[slot];
+        if (index == -1) {
+            set(slot, distance, priority, roadId, sequence);
+            heap[size] = slot;
+            position[slot] = size;
+            siftUp(size++);
+            return true;
+        }
+        if (compare(distance, priority, roadId, this.distance[slot], this.priority[slot], this.roadId[slot]) >= 0) {
+            return false;
+        }
+        set(slot, distance, priority, roadId, sequence);
+        siftUp(index);
+        return true;
+    }
+
+    /**
+     * Removes the first route of the queue.
+     *
+     * @return the slot of the removed route.
+     */
+    public int poll() {
+        int slot = heap[0];
+        position[slot] = -1;
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            position[heap[0]] = 0;
+            siftDown(0);
+        }
+        return slot;
+    }
+
+    /**
+     * Returns the slot of the first route of the queue without removing it.
+     *
+     * @return the slot of the first route.
+     */
+    public int peek() {
+        return heap[0];
+    }
+
+    /**
+     * Checks whether the queue holds no routes.
+     *
+     * @return true if the queue is empty.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the distance of the route last stored in a slot, which stays readable after the route is polled.
+     *
+     * @param slot the slot of the point.
+     * @return the total distance of the route.
+     */
+    public int getDistance(int slot) {
+        return distance[slot];
+    }
+
+    /**
+     * Returns the priority of the route last stored in a slot, which stays readable after the route is polled.
+     *
+     * @param slot the slot of the point.
+     * @return the priority of the route.
+     */
+    public int getPriority(int slot) {
+        return priority[slot];
+    }
+
+    /**
+     * Empties the queue so it can be used for another calculation without allocating new arrays.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+        nextSequence = 0;
+    }
+
+    private void set(int slot, int distance, int priority, int roadId, long sequence) {
+        this.distance[slot] = distance;
+        this.priority[slot] = priority;
+        this.roadId[slot] = roadId;
+        this.sequence[slot] = sequence;
+    }
+
+    private static int compare(int distance1, int priority1, int roadId1, int distance2, int priority2, int roadId2) {
+        // 1. Compare by Distance
+        int distanceComparison = Integer.compare(distance1, distance2);
+        if (distanceComparison != 0) {
+            return distanceComparison;
+        }
+        // 2. Compare by Priority
+        int priorityComparison = Integer.compare(priority1, priority2);
+        if (priorityComparison != 0) {
+            return priorityComparison;
+        }
+        // 3. Compare by ID
+        return Integer.compare(roadId1, roadId2);
+    }
+
+    private boolean less(int slot1, int slot2) {
+        int comparison = compare(distance[slot1], priority[slot1], roadId[slot1], distance[slot2], priority[slot2], roadId[slot2]);
+        return comparison < 0 || (comparison == 0 && sequence[slot1] < sequence[slot2]);
+    }
+
+    private void siftUp(int index) {
+        int slot = heap[index];
+        while (index > 0) {
+            int parentIndex = (index - 1) >>> 1;
+            int parentSlot = heap[parentIndex];
+            if (!less(slot, parentSlot)) {
+                break;
+            }
+            heap[index] = parentSlot;
+            position[parentSlot] = index;
+            index = parentIndex;
+        }
+        heap[index] = slot;
+        position[slot] = index;
+    }
+
+    private void siftDown(int index) {
+        int slot = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int childIndex = 2 * index + 1;
+            int childSlot = heap[childIndex];
+            int rightIndex = childIndex + 1;
+            if (rightIndex < size && less(heap[rightIndex], childSlot)) {
+                childIndex = rightIndex;
+                childSlot = heap[rightIndex];
+            }
+            if (!less(childSlot, slot)) {
+                break;
+            }
+            heap[index] = childSlot;
+            position[childSlot] = index;
+            index = childIndex;
+        }
+        heap[index] = slot;
+        position[slot] = index;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= position.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, position.length * 2);
+        int oldCapacity = position.length;
+        heap = Arrays.copyOf(heap, newCapacity);
+        position = Arrays.copyOf(position, newCapacity);
+        Arrays.fill(position, oldCapacity, newCapacity, -1);
+        distance = Arrays.copyOf(distance, newCapacity);
+        priority = Arrays.copyOf(priority, newCapacity);
+        roadId = Arrays.copyOf(roadId, newCapacity);
+        sequence = Arrays.copyOf(sequence, newCapacity);
+    }
+}
@@ -0,0 +1,145 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Holds the result of the fastest route algorithm from one starting point on a RoadGraph.
+ * For every settled point it keeps the distance from the start, the point it was reached from and the road it was reached by.
+ */
+public class ShortestPathTree {
+    private final RoadGraph graph;
+    private final String start;
+    private final int[] distance;
+    private final int[] parent;
+    private final int[] parentRoad;
+
+    private ShortestPathTree(RoadGraph graph, String start) {
+        this.graph = graph;
+        this.start = start;
+        this.distance = new int[graph.getPointCount()];
+        this.parent = new int[graph.getPointCount()];
+        this.parentRoad = new int[graph.getPointCount()];
+        Arrays.fill(distance, -1);
+    }
+
+    /**
+     * Calculates the shortest route tree starting from a specified point with the algorithm explained in pdf for fastest route.
+     * A route that leaves the n-th settled point gets priority n, and the waiting routes are ordered by distance, priority and road id.
+     *
+     * @param graph the graph of the roads available for constructing the route
+     * @param start starting point for the shortest path calculation
+     * @return the calculated tree
+     */
+    public static ShortestPathTree calculate(RoadGraph graph, String start) {
+        ShortestPathTree tree = new ShortestPathTree(graph, start);
+        int source = graph.getPointId(start);
+        if (source == -1) {
+            return tree;
+        }
+        RouteQueue routeQueue = new RouteQueue(graph.getPointCount());
+        int[] waitingParent = new int[graph.getPointCount()];
+        int[] waitingRoad = new int[graph.getPointCount()];
+
+        tree.distance[source] = 0;
+        tree.parent[source] = -1;
+        tree.parentRoad[source] = -1;
+        int current = source;
+        int i = 0;
+        while (true) {
+            int currentDistance = tree.distance[current];
+            for (int arc = graph.getFirstArc(current); arc < graph.getFirstArc(current + 1); arc++) {
+                int neighbor = graph.getNeighbor(arc);
+                if (tree.distance[neighbor] == -1
+                        && routeQueue.offer(neighbor, currentDistance + graph.getArcLength(arc), i, graph.getArcRoadId(arc))) {
+                    waitingParent[neighbor] = current;
+                    waitingRoad[neighbor] = graph.getArcRoadIndex(arc);
+                }
+            }
+            if (routeQueue.isEmpty()) {
+                break;
+            }
+            current = routeQueue.poll();
+            tree.distance[current] = routeQueue.getDistance(current);
+            tree.parent[current] = waitingParent[current];
+            tree.parentRoad[current] = waitingRoad[current];
+            i++;
+        }
+        return tree;
+    }
+
+    /**
+     * Retrieves the shortest route from the starting point to a specified endpoint.
+     * If no route exists, returns an empty list.
+     *
+     * @param start the start point of the route
+     * @param end the end point of the route
+     * @return a list of Roads representing the shortest route from start to end
+     */
+    public List<Road> getRoute(String start, String end) {
+        List<Road> route = new ArrayList<>();
+        int startId = graph.getPointId(start);
+        int current = graph.getPointId(end);
+        if (current == -1) {
+            return route;
+        }
+        while (current != startId && distance[current] != -1 && parent[current] != -1) {
+            route.add(graph.getRoad(parentRoad[current]));
+            current = parent[current];
+        }
+        if (current != startId) {
+            return new ArrayList<>();
+        }
+        Collections.reverse(route);
+        return route;
+    }
+
+    /**
+     * Returns the distance of the shortest route from the starting point to a specified point.
+     *
+     * @param point the end point of the route
+     * @return the distance in kilometers, or -1 if the point cannot be reached
+     */
+    public int getDistance(String point) {
+        int pointId = graph.getPointId(point);
+        return pointId == -1 ? -1 : distance[pointId];
+    }
+
+    /**
+     * Returns the distance of the shortest route from the starting point to a point of the graph.
+     *
+     * @param pointId the id of the end point of the route
+     * @return the distance in kilometers, or -1 if the point cannot be reached
+     */
+    public int getDistance(int pointId) {
+        return distance[pointId];
+    }
+
+    /**
+     * Returns the point a point was reached from, which is the next point on its route back to the starting point.
+     *
+     * @param pointId the id of a reached point
+     * @return the id of the previous point, or -1 for the starting point
+     */
+    public int getParent(int pointId) {
+        return parent[pointId];
+    }
+
+    /**
+     * Returns the road a point was reached by.
+     *
+     * @param pointId the id of a reached point
+     * @return the index of the road in the graph, or -1 for the starting point
+     */
+    public int getParentRoad(int pointId) {
+        return parentRoad[pointId];
+    }
+
+    public RoadGraph getGraph() {
+        return graph;
+    }
+
+    public String getStart() {
+        return start;
+    }
+}